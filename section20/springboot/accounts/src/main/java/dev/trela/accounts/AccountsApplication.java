@@ -1,6 +1,7 @@
 package dev.trela.accounts;
 
 import dev.trela.accounts.dto.AccountsContactInfoDto;
+import dev.trela.traffic.loadbalancer.TrelaLoadBalancerConfiguration;
 import io.swagger.v3.oas.annotations.ExternalDocumentation;
 import io.swagger.v3.oas.annotations.OpenAPIDefinition;
 import io.swagger.v3.oas.annotations.info.Contact;
@@ -9,6 +10,7 @@ import io.swagger.v3.oas.annotations.info.License;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.cloud.loadbalancer.annotation.LoadBalancerClients;
 import org.springframework.cloud.openfeign.EnableFeignClients;
 import org.springframework.data.jpa.repository.config.EnableJpaAuditing;
 
@@ -38,6 +40,7 @@ import org.springframework.data.jpa.repository.config.EnableJpaAuditing;
 )
 @EnableConfigurationProperties(value = {AccountsContactInfoDto.class})
 @EnableFeignClients
+@LoadBalancerClients(defaultConfiguration = TrelaLoadBalancerConfiguration.class)
 public class AccountsApplication {
 	public static void main(String[] args) {
 		SpringApplication.run(AccountsApplication.class, args);
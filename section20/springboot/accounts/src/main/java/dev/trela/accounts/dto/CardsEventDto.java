@@ -0,0 +1,6 @@
+package dev.trela.accounts.dto;
+
+public record CardsEventDto(Type type, String mobileNumber, CardsDto card, long occurredAt) {
+
+    public enum Type { CREATED, UPDATED, DELETED }
+}
@@ -6,6 +6,8 @@ import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Pattern;
 import jakarta.validation.constraints.Size;
 
+import java.util.Map;
+
 @Schema(
         name = "Customer",
         description = "Schema to hold Customer,Account and Loans information"
@@ -44,7 +46,13 @@ public record CustomerDetailsDto(
         @Schema(
                 description = "Card details of the customer"
         )
-        CardsDto cardsDto
+        CardsDto cardsDto,
+
+        @Schema(
+                description = "Sections served from a snapshot because their service was unavailable, with the snapshot age in seconds",
+                example = "{\"loans\": 42}"
+        )
+        Map<String, Long> staleSections
 
 ){
 
@@ -0,0 +1,6 @@
+package dev.trela.accounts.dto;
+
+public record LoanEventDto(Type type, String mobileNumber, LoanDto loan, long occurredAt) {
+
+    public enum Type { CREATED, UPDATED, DELETED }
+}
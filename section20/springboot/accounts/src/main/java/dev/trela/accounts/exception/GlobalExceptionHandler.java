@@ -1,6 +1,7 @@
 package dev.trela.accounts.exception;
 
 
+import dev.trela.common.deadline.DeadlineExceededException;
 import dev.trela.common.dto.ErrorResponseDto;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
@@ -47,6 +48,17 @@ public class GlobalExceptionHandler extends ResponseEntityExceptionHandler {
 
 
     // exception handler for all other exceptions
+    @ExceptionHandler(DeadlineExceededException.class)
+    public ResponseEntity<ErrorResponseDto> handleDeadlineExceededException(DeadlineExceededException exception, WebRequest webRequest){
+        ErrorResponseDto errorResponseDTO = new ErrorResponseDto(
+                webRequest.getDescription(false),
+                HttpStatus.GATEWAY_TIMEOUT,
+                exception.getMessage(),
+                LocalDateTime.now()
+        );
+        return new ResponseEntity<>(errorResponseDTO, HttpStatus.GATEWAY_TIMEOUT);
+    }
+
     @ExceptionHandler(Exception.class)
     public ResponseEntity<ErrorResponseDto> handleAllDifferentExceptions(Exception exception, WebRequest webRequest){
         ErrorResponseDto errorResponseDTO = new ErrorResponseDto(
@@ -1,11 +1,15 @@
 package dev.trela.accounts.functions;
 
+import dev.trela.accounts.dto.CardsEventDto;
+import dev.trela.accounts.dto.LoanEventDto;
+import dev.trela.accounts.projection.CustomerProjection;
 import dev.trela.accounts.service.AccountService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.List;
 import java.util.function.Consumer;
 
 @Configuration
@@ -20,4 +24,22 @@ public class AccountsFunctions {
         };
     }
 
+    @Bean
+    public Consumer<List<Long>> updateCommunicationBatch(AccountService accountService) {
+        return accountNumbers -> {
+            log.info("Updating communication for {} accounts", accountNumbers.size());
+            accountService.updateCommunicationStatus(accountNumbers);
+        };
+    }
+
+    @Bean
+    public Consumer<LoanEventDto> loansChanged(CustomerProjection customerProjection) {
+        return customerProjection::apply;
+    }
+
+    @Bean
+    public Consumer<CardsEventDto> cardsChanged(CustomerProjection customerProjection) {
+        return customerProjection::apply;
+    }
+
 }
@@ -3,6 +3,8 @@ package dev.trela.accounts.mapper;
 import dev.trela.accounts.dto.*;
 import dev.trela.accounts.entity.Customer;
 
+import java.util.Map;
+
 public class CustomerMapper {
 
 
@@ -12,13 +14,19 @@ public class CustomerMapper {
 
 
     public static CustomerDetailsDto mapToCustomerDetailsDto(Customer customer, AccountsDto accountsDto, LoanDto loanDto, CardsDto cardsDto) {
+        return mapToCustomerDetailsDto(customer, accountsDto, loanDto, cardsDto, Map.of());
+    }
+
+    public static CustomerDetailsDto mapToCustomerDetailsDto(Customer customer, AccountsDto accountsDto, LoanDto loanDto,
+                                                             CardsDto cardsDto, Map<String, Long> staleSections) {
         return new CustomerDetailsDto(
                 customer.getName(),
                 customer.getEmail(),
                 customer.getMobileNumber(),
                 accountsDto,
                 loanDto,
-                cardsDto
+                cardsDto,
+                staleSections
         );
     }
 
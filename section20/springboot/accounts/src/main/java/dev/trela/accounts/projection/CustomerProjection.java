@@ -0,0 +1,113 @@
+package dev.trela.accounts.projection;
+
+import dev.trela.accounts.dto.CardsDto;
+import dev.trela.accounts.dto.CardsEventDto;
+import dev.trela.accounts.dto.LoanDto;
+import dev.trela.accounts.dto.LoanEventDto;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Local read model of loans and cards keyed by mobile number, built from the *-changed topics.
+// Every instance consumes the whole topic (anonymous group) from the start, so the map is only
+// trusted for a source once its consumer went idle, i.e. caught up with the log.
+@Component
+@Slf4j
+public class CustomerProjection {
+
+    private final boolean serveReads;
+    private final Map<String, LoanDto> loans = new ConcurrentHashMap<>();
+    private final Map<String, CardsDto> cards = new ConcurrentHashMap<>();
+    private final Map<ProjectionSource, SourceState> states = new EnumMap<>(ProjectionSource.class);
+
+    public CustomerProjection(MeterRegistry meterRegistry,
+                              @Value("${accounts.projection.serve-reads:false}") boolean serveReads) {
+        this.serveReads = serveReads;
+        for (ProjectionSource source : ProjectionSource.values()) {
+            SourceState state = new SourceState();
+            states.put(source, state);
+            String tag = source.name().toLowerCase();
+            // how far behind the producer the last applied change was, in milliseconds
+            Gauge.builder("accounts.projection.lag", state.lagMillis, AtomicLong::get)
+                    .tag("source", tag).baseUnit("milliseconds").register(meterRegistry);
+            Gauge.builder("accounts.projection.caught.up", state, s -> s.caughtUp ? 1 : 0)
+                    .tag("source", tag).register(meterRegistry);
+        }
+        Gauge.builder("accounts.projection.entries", loans, Map::size).tag("source", "loans").register(meterRegistry);
+        Gauge.builder("accounts.projection.entries", cards, Map::size).tag("source", "cards").register(meterRegistry);
+    }
+
+    public void apply(LoanEventDto event) {
+        if (event.type() == LoanEventDto.Type.DELETED) {
+            loans.remove(event.mobileNumber());
+        } else {
+            loans.put(event.mobileNumber(), event.loan());
+        }
+        applied(ProjectionSource.LOANS, event.occurredAt());
+    }
+
+    public void apply(CardsEventDto event) {
+        if (event.type() == CardsEventDto.Type.DELETED) {
+            cards.remove(event.mobileNumber());
+        } else {
+            cards.put(event.mobileNumber(), event.card());
+        }
+        applied(ProjectionSource.CARDS, event.occurredAt());
+    }
+
+    private void applied(ProjectionSource source, long occurredAt) {
+        states.get(source).lagMillis.set(Math.max(0, System.currentTimeMillis() - occurredAt));
+    }
+
+    // null when the projection does not know the customer, which is not the same as having none -
+    // only meaningful while isServing(source)
+    public LoanDto loan(String mobileNumber) {
+        return loans.get(mobileNumber);
+    }
+
+    public CardsDto card(String mobileNumber) {
+        return cards.get(mobileNumber);
+    }
+
+    public boolean isServing(ProjectionSource source) {
+        return serveReads && states.get(source).caughtUp;
+    }
+
+    public void markCaughtUp(ProjectionSource source) {
+        SourceState state = states.get(source);
+        if (!state.caughtUp) {
+            log.info("Projection of {} caught up, {} loans and {} cards", source, loans.size(), cards.size());
+            state.caughtUp = true;
+        }
+    }
+
+    // a replay from the beginning starts from an empty map; from a later offset the events are
+    // full-state upserts, so re-applying them over the current map is harmless
+    public void startReplay(ProjectionSource source, boolean fromBeginning) {
+        states.get(source).caughtUp = false;
+        if (fromBeginning) {
+            (source == ProjectionSource.LOANS ? loans : cards).clear();
+        }
+    }
+
+    public Map<String, Object> status() {
+        Map<String, Object> status = new ConcurrentHashMap<>();
+        states.forEach((source, state) -> status.put(source.name().toLowerCase(), Map.of(
+                "caughtUp", state.caughtUp,
+                "lagMillis", state.lagMillis.get(),
+                "entries", source == ProjectionSource.LOANS ? loans.size() : cards.size())));
+        return status;
+    }
+
+    private static final class SourceState {
+        private final AtomicLong lagMillis = new AtomicLong();
+        private volatile boolean caughtUp;
+    }
+}
@@ -0,0 +1,33 @@
+package dev.trela.accounts.projection;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+// GET /actuator/projection shows per source progress,
+// POST /actuator/projection/{loans|cards} {"fromOffset": n} replays that source (0 = full rebuild)
+@Component
+@Endpoint(id = "projection")
+@RequiredArgsConstructor
+public class ProjectionEndpoint {
+
+    private final CustomerProjection customerProjection;
+    private final ProjectionReplayer projectionReplayer;
+
+    @ReadOperation
+    public Map<String, Object> status() {
+        return customerProjection.status();
+    }
+
+    @WriteOperation
+    public Map<String, Object> rebuild(@Selector String source, @Nullable Long fromOffset) {
+        projectionReplayer.rebuild(ProjectionSource.valueOf(source.toUpperCase()), fromOffset == null ? 0 : fromOffset);
+        return customerProjection.status();
+    }
+}
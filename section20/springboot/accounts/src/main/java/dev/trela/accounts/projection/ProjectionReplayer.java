@@ -0,0 +1,65 @@
+package dev.trela.accounts.projection;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.stream.binder.kafka.KafkaBindingRebalanceListener;
+import org.springframework.cloud.stream.binding.BindingsLifecycleController;
+import org.springframework.context.event.EventListener;
+import org.springframework.kafka.event.ListenerContainerIdleEvent;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Positions the projection consumers: every fresh assignment starts at the requested offset
+// (the beginning unless a rebuild asked for more), and an idle consumer marks its source as
+// caught up. rebuild() restarts the binding so the new assignment replays.
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ProjectionReplayer implements KafkaBindingRebalanceListener {
+
+    private final CustomerProjection customerProjection;
+    // looked up lazily, the binder asks for this listener while the bindings are being created
+    private final ObjectProvider<BindingsLifecycleController> bindingsLifecycleController;
+    private final Map<ProjectionSource, Long> replayFrom = new ConcurrentHashMap<>();
+
+    @Override
+    public void onPartitionsAssigned(String bindingName, Consumer<?, ?> consumer,
+                                     Collection<TopicPartition> partitions, boolean initial) {
+        if (!initial) {
+            return;
+        }
+        ProjectionSource.ofBinding(bindingName).ifPresent(source -> {
+            long offset = replayFrom.getOrDefault(source, 0L);
+            customerProjection.startReplay(source, offset == 0);
+            if (offset == 0) {
+                consumer.seekToBeginning(partitions);
+            } else {
+                // offsets below the log start (compacted or expired) fall back to the earliest one
+                Map<TopicPartition, Long> beginnings = consumer.beginningOffsets(partitions);
+                partitions.forEach(partition -> consumer.seek(partition, Math.max(offset, beginnings.get(partition))));
+            }
+            log.info("Replaying {} from offset {} on {}", source, offset, partitions);
+        });
+    }
+
+    @EventListener
+    public void onIdle(ListenerContainerIdleEvent event) {
+        event.getTopicPartitions().stream()
+                .map(TopicPartition::topic)
+                .distinct()
+                .forEach(topic -> ProjectionSource.ofTopic(topic).ifPresent(customerProjection::markCaughtUp));
+    }
+
+    public void rebuild(ProjectionSource source, long fromOffset) {
+        replayFrom.put(source, Math.max(0, fromOffset));
+        BindingsLifecycleController controller = bindingsLifecycleController.getObject();
+        controller.changeState(source.getBindingName(), BindingsLifecycleController.State.STOPPED);
+        controller.changeState(source.getBindingName(), BindingsLifecycleController.State.STARTED);
+    }
+}
@@ -0,0 +1,34 @@
+package dev.trela.accounts.projection;
+
+import java.util.Arrays;
+import java.util.Optional;
+
+public enum ProjectionSource {
+
+    LOANS("loansChanged-in-0", "loans-changed"),
+    CARDS("cardsChanged-in-0", "cards-changed");
+
+    private final String bindingName;
+    private final String topic;
+
+    ProjectionSource(String bindingName, String topic) {
+        this.bindingName = bindingName;
+        this.topic = topic;
+    }
+
+    public String getBindingName() {
+        return bindingName;
+    }
+
+    public String getTopic() {
+        return topic;
+    }
+
+    public static Optional<ProjectionSource> ofBinding(String bindingName) {
+        return Arrays.stream(values()).filter(source -> source.bindingName.equals(bindingName)).findFirst();
+    }
+
+    public static Optional<ProjectionSource> ofTopic(String topic) {
+        return Arrays.stream(values()).filter(source -> source.topic.equals(topic)).findFirst();
+    }
+}
@@ -4,6 +4,8 @@ import dev.trela.accounts.dto.CustomerDto;
 import dev.trela.accounts.entity.Accounts;
 import dev.trela.accounts.entity.Customer;
 
+import java.util.List;
+
 public interface AccountService {
     void createAccount(CustomerDto customerDto);
     CustomerDto fetchAccount(String mobileNumber);
@@ -14,6 +16,7 @@ public interface AccountService {
     Accounts getAccountById(Long accountId);
     void deleteAccount(String mobileNumber);
     boolean updateCommunicationStatus(Long accountNumber);
+    int updateCommunicationStatus(List<Long> accountNumbers);
 
 
 }
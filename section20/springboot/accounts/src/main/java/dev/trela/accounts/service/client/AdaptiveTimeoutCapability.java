@@ -0,0 +1,48 @@
+package dev.trela.accounts.service.client;
+
+import dev.trela.common.deadline.RequestDeadlineHolder;
+import dev.trela.traffic.timeout.AdaptiveTimeouts;
+import feign.Capability;
+import feign.Client;
+import feign.Request;
+import feign.Response;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.net.http.HttpTimeoutException;
+import java.util.concurrent.TimeUnit;
+
+// Replaces the fixed Feign read timeout with the adaptive one of the endpoint (service + path),
+// cut down to what is left of the caller's deadline. Applied to every Feign client.
+@Component
+@RequiredArgsConstructor
+public class AdaptiveTimeoutCapability implements Capability {
+
+    private final AdaptiveTimeouts adaptiveTimeouts;
+
+    @Override
+    public Client enrich(Client client) {
+        return (request, options) -> {
+            URI uri = URI.create(request.url());
+            String endpoint = "feign:" + uri.getHost() + uri.getPath();
+            long timeoutMillis = adaptiveTimeouts.timeoutFor(endpoint).toMillis();
+            Long remainingMillis = RequestDeadlineHolder.remainingMillis();
+            if (remainingMillis != null) {
+                timeoutMillis = Math.min(timeoutMillis, remainingMillis);
+            }
+            Request.Options adaptive = new Request.Options(options.connectTimeout(), options.connectTimeoutUnit(),
+                    Math.max(1, timeoutMillis), TimeUnit.MILLISECONDS, options.isFollowRedirects());
+            long start = System.nanoTime();
+            try {
+                Response response = client.execute(request, adaptive);
+                adaptiveTimeouts.record(endpoint, System.nanoTime() - start);
+                return response;
+            } catch (SocketTimeoutException | HttpTimeoutException e) {
+                adaptiveTimeouts.recordTimeout(endpoint);
+                throw e;
+            }
+        };
+    }
+}
@@ -1,13 +1,42 @@
 package dev.trela.accounts.service.client;
 
 import dev.trela.accounts.dto.CardsDto;
+import dev.trela.accounts.snapshot.SnapshotStore;
+import feign.FeignException;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.cloud.openfeign.FallbackFactory;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Component;
 
 @Component
-public class CardsFallback implements CardsFeignClient {
+@RequiredArgsConstructor
+public class CardsFallback implements FallbackFactory<CardsFeignClient> {
+
+    private final MeterRegistry meterRegistry;
+    private final SnapshotStore<CardsDto> cardSnapshots;
+
+    // a 404 means the customer has none, the section is left out and any snapshot dropped;
+    // other failures get the last known good details if we have them, otherwise the section is left out
     @Override
-    public ResponseEntity<CardsDto> fetchCardDetails(String correlationId, String mobileNumber) {
-        return null;
+    public CardsFeignClient create(Throwable cause) {
+        return (correlationId, deadlineMillis, mobileNumber) -> {
+            if (cause instanceof FeignException.NotFound) {
+                cardSnapshots.evict(mobileNumber);
+                meterRegistry.counter("accounts.feign.fallbacks", "client", "cards", "result", "not-found").increment();
+                return null;
+            }
+            return cardSnapshots.get(mobileNumber)
+                    .map(snapshot -> {
+                        meterRegistry.counter("accounts.feign.fallbacks", "client", "cards", "result", "snapshot").increment();
+                        return ResponseEntity.ok()
+                                .header(SnapshotStore.AGE_HEADER, String.valueOf(snapshot.ageSeconds()))
+                                .body(snapshot.value());
+                    })
+                    .orElseGet(() -> {
+                        meterRegistry.counter("accounts.feign.fallbacks", "client", "cards", "result", "miss").increment();
+                        return null;
+                    });
+        };
     }
 }
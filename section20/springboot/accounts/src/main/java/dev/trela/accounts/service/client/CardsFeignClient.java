@@ -1,14 +1,17 @@
 package dev.trela.accounts.service.client;
 
 import dev.trela.accounts.dto.CardsDto;
+import dev.trela.common.deadline.Deadline;
 import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestParam;
 
-@FeignClient(name = "cards", fallback = CardsFallback.class)
+@FeignClient(name = "cards", fallbackFactory = CardsFallback.class)
 public interface CardsFeignClient {
     @GetMapping("/api/fetch")
-    public ResponseEntity<CardsDto> fetchCardDetails(@RequestHeader("trelaBank-correlation-id") String correlationId, @RequestParam String mobileNumber);
+    public ResponseEntity<CardsDto> fetchCardDetails(@RequestHeader("trelaBank-correlation-id") String correlationId,
+                                                     @RequestHeader(Deadline.HEADER) Long deadlineMillis,
+                                                     @RequestParam String mobileNumber);
 }
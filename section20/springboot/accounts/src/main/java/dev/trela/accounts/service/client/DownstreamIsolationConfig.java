@@ -0,0 +1,53 @@
+package dev.trela.accounts.service.client;
+
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.core.registry.EntryAddedEvent;
+import io.github.resilience4j.core.registry.EntryRemovedEvent;
+import io.github.resilience4j.core.registry.EntryReplacedEvent;
+import io.github.resilience4j.core.registry.RegistryEventConsumer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.cloud.openfeign.CircuitBreakerNameResolver;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+// One circuit breaker and one semaphore bulkhead per downstream service. Spring Cloud
+// CircuitBreaker looks the bulkhead up by the circuit breaker name, so naming the breakers
+// after the Feign client ("loans", "cards") is what makes resilience4j.bulkhead.instances.<name>
+// apply. A full bulkhead throws BulkheadFullException, which lands in the client's fallback.
+@Configuration
+public class DownstreamIsolationConfig {
+
+    @Bean
+    public CircuitBreakerNameResolver circuitBreakerNameResolver() {
+        return (feignClientName, target, method) -> feignClientName;
+    }
+
+    // resilience4j already exports available/max concurrent calls, this adds in-use and rejections
+    @Bean
+    public RegistryEventConsumer<Bulkhead> bulkheadMetrics(MeterRegistry meterRegistry) {
+        return new RegistryEventConsumer<>() {
+            @Override
+            public void onEntryAddedEvent(EntryAddedEvent<Bulkhead> entryAddedEvent) {
+                Bulkhead bulkhead = entryAddedEvent.getAddedEntry();
+                Gauge.builder("accounts.bulkhead.active", bulkhead,
+                                b -> b.getMetrics().getMaxAllowedConcurrentCalls() - b.getMetrics().getAvailableConcurrentCalls())
+                        .tag("name", bulkhead.getName())
+                        .register(meterRegistry);
+                bulkhead.getEventPublisher()
+                        .onCallPermitted(event -> meterRegistry.counter("accounts.bulkhead.calls",
+                                "name", event.getBulkheadName(), "result", "permitted").increment())
+                        .onCallRejected(event -> meterRegistry.counter("accounts.bulkhead.calls",
+                                "name", event.getBulkheadName(), "result", "rejected").increment());
+            }
+
+            @Override
+            public void onEntryRemovedEvent(EntryRemovedEvent<Bulkhead> entryRemoveEvent) {
+            }
+
+            @Override
+            public void onEntryReplacedEvent(EntryReplacedEvent<Bulkhead> entryReplacedEvent) {
+            }
+        };
+    }
+}
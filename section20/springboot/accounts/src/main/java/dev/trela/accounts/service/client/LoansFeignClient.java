@@ -1,14 +1,17 @@
 package dev.trela.accounts.service.client;
 
 import dev.trela.accounts.dto.LoanDto;
+import dev.trela.common.deadline.Deadline;
 import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestParam;
 
-@FeignClient(name = "loans", fallback = LoansFallback.class)
+@FeignClient(name = "loans", fallbackFactory = LoansFallback.class)
 public interface LoansFeignClient {
     @GetMapping("/api/fetch")
-    public ResponseEntity<LoanDto> fetchLoanDetails(@RequestHeader("trelaBank-correlation-id") String correlationId, @RequestParam String mobileNumber);
+    public ResponseEntity<LoanDto> fetchLoanDetails(@RequestHeader("trelaBank-correlation-id") String correlationId,
+                                                     @RequestHeader(Deadline.HEADER) Long deadlineMillis,
+                                                     @RequestParam String mobileNumber);
 }
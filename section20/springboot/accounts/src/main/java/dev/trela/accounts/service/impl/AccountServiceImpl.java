@@ -13,6 +13,7 @@ import dev.trela.accounts.mapper.CustomerMapper;
 import dev.trela.accounts.repository.AccountsRepository;
 import dev.trela.accounts.repository.CustomerRepository;
 import dev.trela.accounts.service.AccountService;
+import dev.trela.common.deadline.RequestDeadlineHolder;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -21,6 +22,7 @@ import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
 
+import java.util.List;
 import java.util.Random;
 
 @Service
@@ -35,6 +37,7 @@ public class AccountServiceImpl implements AccountService {
 
     @Override
     public void createAccount(CustomerDto customerDto) {
+        RequestDeadlineHolder.checkNotExpired("createAccount");
         Customer customer = CustomerMapper.mapToCustomer(customerDto);
         // validate if customer already exists
         if(customerRepository.findByMobileNumber(customerDto.mobileNumber()).isPresent()){;
@@ -58,6 +61,7 @@ public class AccountServiceImpl implements AccountService {
 
     @Override
     public CustomerDto fetchAccount(String mobileNumber) {
+        RequestDeadlineHolder.checkNotExpired("fetchAccount");
         // validate if customer exists
         Customer customer = getCustomerByMobileNumber(mobileNumber);
         //validate if account exists for the customer
@@ -68,6 +72,7 @@ public class AccountServiceImpl implements AccountService {
 
     @Override
     public CustomerDto updateAccount(CustomerDto customerDto) {
+        RequestDeadlineHolder.checkNotExpired("updateAccount");
         Accounts accountToUpdate = getAccountById(customerDto.accountsDto().accountNumber());
         Customer customerToUpdate = findCustomerById(accountToUpdate.getCustomerId());
 
@@ -112,6 +117,7 @@ public class AccountServiceImpl implements AccountService {
 
     @Override
     public void deleteAccount(String mobileNumber) {
+        RequestDeadlineHolder.checkNotExpired("deleteAccount");
         Customer customerToDelete = getCustomerByMobileNumber(mobileNumber);
         customerRepository.delete(customerToDelete);
     }
@@ -131,6 +137,18 @@ public class AccountServiceImpl implements AccountService {
             return isUpdated;
     }
 
+    // confirmations from the message service's batch mode, one transaction for the whole batch
+    @Override
+    public int updateCommunicationStatus(List<Long> accountNumbers) {
+        List<Accounts> accounts = accountsRepository.findAllById(accountNumbers);
+        accounts.forEach(account -> account.setCommunicationSw(true));
+        accountsRepository.saveAll(accounts);
+        if (accounts.size() < accountNumbers.size()) {
+            log.warn("{} of {} confirmed accounts no longer exist", accountNumbers.size() - accounts.size(), accountNumbers.size());
+        }
+        return accounts.size();
+    }
+
 
     private Accounts createNewAccount(Customer customer){
         Accounts newAccount = new Accounts();
@@ -9,16 +9,23 @@ import dev.trela.accounts.entity.Customer;
 import dev.trela.accounts.exception.ResourceNotFoundException;
 import dev.trela.accounts.mapper.AccountsMapper;
 import dev.trela.accounts.mapper.CustomerMapper;
+import dev.trela.accounts.projection.CustomerProjection;
+import dev.trela.accounts.projection.ProjectionSource;
 import dev.trela.accounts.repository.AccountsRepository;
 import dev.trela.accounts.repository.CustomerRepository;
 import dev.trela.accounts.service.CustomerService;
 import dev.trela.accounts.service.client.CardsFeignClient;
 import dev.trela.accounts.service.client.LoansFeignClient;
+import dev.trela.accounts.snapshot.SnapshotStore;
+import dev.trela.common.deadline.RequestDeadlineHolder;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 
+import java.util.HashMap;
+import java.util.Map;
+
 @Service
 @Transactional
 @RequiredArgsConstructor
@@ -28,9 +35,13 @@ public class CustomerServiceImpl implements CustomerService {
     private final CustomerRepository customerRepository;
     private final CardsFeignClient cardsFeignClient;
     private final LoansFeignClient loansFeignClient;
+    private final SnapshotStore<LoanDto> loanSnapshots;
+    private final SnapshotStore<CardsDto> cardSnapshots;
+    private final CustomerProjection customerProjection;
 
     @Override
     public CustomerDetailsDto fetchCustomerDetails(String mobileNumber,String correlationId) {
+        RequestDeadlineHolder.checkNotExpired("fetchCustomerDetails");
         // validate if customer exists
         Customer customer = getCustomerByMobileNumber(mobileNumber);
         //validate if account exists for the customer
@@ -38,30 +49,53 @@ public class CustomerServiceImpl implements CustomerService {
 
 
 
-        ResponseEntity<LoanDto> loanDtoResponseEntity = loansFeignClient.fetchLoanDetails(correlationId,mobileNumber);
-        ResponseEntity<CardsDto> cardDtoResponseEntity = cardsFeignClient.fetchCardDetails(correlationId,mobileNumber);
-
-        LoanDto loanDto = null;
-        CardsDto cardDto = null;
-
-        if(loanDtoResponseEntity!= null) {
-             loanDto = loanDtoResponseEntity.getBody();
+        // answered from the local projection once it caught up with the change topics; a miss
+        // there means unknown (e.g. the change is not consumed yet), not "has none", so it and
+        // startup or rebuild fall through to the services
+        Map<String, Long> staleSections = new HashMap<>();
+        LoanDto loanDto = customerProjection.isServing(ProjectionSource.LOANS)
+                ? customerProjection.loan(mobileNumber) : null;
+        if (loanDto == null) {
+            // forward whatever is left of the caller's budget
+            RequestDeadlineHolder.checkNotExpired("calling loans");
+            ResponseEntity<LoanDto> loanDtoResponseEntity = loansFeignClient.fetchLoanDetails(correlationId,
+                    RequestDeadlineHolder.remainingMillis(), mobileNumber);
+            loanDto = unwrap("loans", loanDtoResponseEntity, mobileNumber, loanSnapshots, staleSections);
         }
-
-        if(cardDtoResponseEntity!= null) {
-            cardDto = cardDtoResponseEntity.getBody();
+        CardsDto cardDto = customerProjection.isServing(ProjectionSource.CARDS)
+                ? customerProjection.card(mobileNumber) : null;
+        if (cardDto == null) {
+            RequestDeadlineHolder.checkNotExpired("calling cards");
+            ResponseEntity<CardsDto> cardDtoResponseEntity = cardsFeignClient.fetchCardDetails(correlationId,
+                    RequestDeadlineHolder.remainingMillis(), mobileNumber);
+            cardDto = unwrap("cards", cardDtoResponseEntity, mobileNumber, cardSnapshots, staleSections);
         }
 
-
         return CustomerMapper
                 .mapToCustomerDetailsDto(
                         customer,
                         AccountsMapper.mapToAccountsDto(account),
                         loanDto,
-                        cardDto
+                        cardDto,
+                        staleSections
                 );
     }
 
+    // fresh answers refresh the snapshot, answers served by a fallback from a snapshot are marked stale
+    private <T> T unwrap(String section, ResponseEntity<T> response, String mobileNumber,
+                         SnapshotStore<T> snapshots, Map<String, Long> staleSections) {
+        if (response == null || response.getBody() == null) {
+            return null;
+        }
+        String snapshotAge = response.getHeaders().getFirst(SnapshotStore.AGE_HEADER);
+        if (snapshotAge != null) {
+            staleSections.put(section, Long.parseLong(snapshotAge));
+        } else {
+            snapshots.put(mobileNumber, response.getBody());
+        }
+        return response.getBody();
+    }
+
     @Override
     public Accounts getAccountByCustomerId(Long customerId) {
         return accountsRepository.findByCustomerId(customerId)
@@ -0,0 +1,28 @@
+package dev.trela.accounts.snapshot;
+
+import dev.trela.accounts.dto.CardsDto;
+import dev.trela.accounts.dto.LoanDto;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+public class SnapshotConfig {
+
+    @Bean
+    public SnapshotStore<LoanDto> loanSnapshots(MeterRegistry meterRegistry,
+                                                @Value("${accounts.snapshots.ttl:10m}") Duration ttl,
+                                                @Value("${accounts.snapshots.max-size:10000}") long maxSize) {
+        return new SnapshotStore<>("loans", ttl, maxSize, meterRegistry);
+    }
+
+    @Bean
+    public SnapshotStore<CardsDto> cardSnapshots(MeterRegistry meterRegistry,
+                                                 @Value("${accounts.snapshots.ttl:10m}") Duration ttl,
+                                                 @Value("${accounts.snapshots.max-size:10000}") long maxSize) {
+        return new SnapshotStore<>("cards", ttl, maxSize, meterRegistry);
+    }
+}
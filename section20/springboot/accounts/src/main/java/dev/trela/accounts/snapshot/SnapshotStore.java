@@ -0,0 +1,50 @@
+package dev.trela.accounts.snapshot;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+
+// Last successful downstream answer per mobile number, bounded and expiring after `ttl`.
+// Filled on the normal call path, read only by the Feign fallbacks, so it never causes
+// remote work of its own.
+public class SnapshotStore<T> {
+
+    // set by a fallback on the ResponseEntity it serves from a snapshot, value is the age in seconds
+    public static final String AGE_HEADER = "trelabank-snapshot-age";
+
+    private final Cache<String, Snapshot<T>> cache;
+
+    public SnapshotStore(String name, Duration ttl, long maxSize, MeterRegistry meterRegistry) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, name + "-snapshots");
+    }
+
+    public void put(String mobileNumber, T value) {
+        cache.put(mobileNumber, new Snapshot<>(value, Instant.now()));
+    }
+
+    // the downstream said the customer has none (any more), an old answer must not come back
+    public void evict(String mobileNumber) {
+        cache.invalidate(mobileNumber);
+    }
+
+    public Optional<Snapshot<T>> get(String mobileNumber) {
+        return Optional.ofNullable(cache.getIfPresent(mobileNumber));
+    }
+
+    public record Snapshot<T>(T value, Instant capturedAt) {
+
+        public long ageSeconds() {
+            return Duration.between(capturedAt, Instant.now()).toSeconds();
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package dev.trela.cards.dto;
+
+// Change notification for the cards-changed topic, keyed by mobile number. `card` is the full
+// state after the change (null for DELETED), so consumers can rebuild from the topic alone.
+public record CardsEventDto(Type type, String mobileNumber, CardsDto card, long occurredAt) {
+
+    public enum Type { CREATED, UPDATED, DELETED }
+
+    public static CardsEventDto of(Type type, String mobileNumber, CardsDto card) {
+        return new CardsEventDto(type, mobileNumber, card, System.currentTimeMillis());
+    }
+}
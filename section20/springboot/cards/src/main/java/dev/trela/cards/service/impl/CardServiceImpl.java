@@ -2,14 +2,17 @@ package dev.trela.cards.service.impl;
 
 import dev.trela.cards.contstants.CardsConstants;
 import dev.trela.cards.dto.CardsDto;
+import dev.trela.cards.dto.CardsEventDto;
 import dev.trela.cards.entity.Cards;
 import dev.trela.cards.exception.CardAlreadyExistsException;
 import dev.trela.cards.exception.ResourceNotFoundException;
 import dev.trela.cards.mapper.CardsMapper;
 import dev.trela.cards.repository.CardsRepository;
 import dev.trela.cards.service.CardsService;
+import dev.trela.common.deadline.RequestDeadlineHolder;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
 import java.util.Random;
@@ -20,26 +23,33 @@ import java.util.Random;
 public class CardServiceImpl implements CardsService {
 
     private final CardsRepository cardsRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Override
     public CardsDto createCard(String mobileNumber) {
+        RequestDeadlineHolder.checkNotExpired("createCard");
         if(cardsRepository.findByMobileNumber(mobileNumber).isPresent()){
             throw new CardAlreadyExistsException("Card already registered with given mobileNumber ",mobileNumber);
         }
-        return CardsMapper.mapToCardsDto(cardsRepository.save(createNewCard(mobileNumber)));
+        CardsDto created = CardsMapper.mapToCardsDto(cardsRepository.save(createNewCard(mobileNumber)));
+        eventPublisher.publishEvent(CardsEventDto.of(CardsEventDto.Type.CREATED, mobileNumber, created));
+        return created;
     }
 
     @Override
     public CardsDto fetchCardDetails(String mobileNumber) {
+        RequestDeadlineHolder.checkNotExpired("fetchCardDetails");
         // return or validate if exits
         return CardsMapper.mapToCardsDto(findByMobileNumber(mobileNumber));
     }
 
     @Override
     public CardsDto updateCard(CardsDto cardDto) {
+        RequestDeadlineHolder.checkNotExpired("updateCard");
         String cardNumber = cardDto.cardNumber();
         //validate if card exists and save to variable
         Cards card = findByCardNumber(cardNumber);
+        String previousMobileNumber = card.getMobileNumber();
 
         card.setMobileNumber(cardDto.mobileNumber());
         card.setCardNumber(cardDto.cardNumber());
@@ -48,7 +58,13 @@ public class CardServiceImpl implements CardsService {
         card.setAmountUsed(cardDto.amountUsed());
         card.setAvailableAmount(cardDto.availableAmount());
 
-        return CardsMapper.mapToCardsDto(cardsRepository.save(cardsRepository.save(card)));
+        CardsDto updated = CardsMapper.mapToCardsDto(cardsRepository.save(cardsRepository.save(card)));
+        // the card moved to another customer - the old key must not keep showing it
+        if (!previousMobileNumber.equals(updated.mobileNumber())) {
+            eventPublisher.publishEvent(CardsEventDto.of(CardsEventDto.Type.DELETED, previousMobileNumber, null));
+        }
+        eventPublisher.publishEvent(CardsEventDto.of(CardsEventDto.Type.UPDATED, updated.mobileNumber(), updated));
+        return updated;
     }
 
 
@@ -78,8 +94,10 @@ public class CardServiceImpl implements CardsService {
 
     @Override
     public void deleteCard(String mobileNumber) {
+        RequestDeadlineHolder.checkNotExpired("deleteCard");
         findByMobileNumber(mobileNumber);
         cardsRepository.deleteByMobileNumber(mobileNumber);
+        eventPublisher.publishEvent(CardsEventDto.of(CardsEventDto.Type.DELETED, mobileNumber, null));
     }
 
 
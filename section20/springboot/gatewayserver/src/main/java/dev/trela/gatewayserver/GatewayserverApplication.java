@@ -1,69 +1,106 @@
 package dev.trela.gatewayserver;
 
+import dev.trela.gatewayserver.aggregation.AggregationProperties;
+import dev.trela.gatewayserver.canary.CanaryLoadBalancerConfiguration;
+import dev.trela.gatewayserver.canary.CanaryProperties;
+import dev.trela.gatewayserver.filters.AdaptiveConcurrencyLimitGatewayFilterFactory;
+import dev.trela.gatewayserver.filters.AdaptiveTimeoutGatewayFilterFactory;
+import dev.trela.gatewayserver.filters.BudgetedRetryGatewayFilterFactory;
+import dev.trela.gatewayserver.filters.CanaryGatewayFilterFactory;
+import dev.trela.gatewayserver.filters.FairQueueingGatewayFilterFactory;
+import dev.trela.gatewayserver.filters.HedgingGatewayFilterFactory;
+import dev.trela.gatewayserver.filters.LastKnownGoodGatewayFilterFactory;
+import dev.trela.gatewayserver.filters.MirroringGatewayFilterFactory;
+import dev.trela.gatewayserver.filters.RequestCoalescingGatewayFilterFactory;
+import dev.trela.gatewayserver.limiter.FairQueueProperties;
+import dev.trela.gatewayserver.mirror.MirrorProperties;
+import dev.trela.gatewayserver.routing.RoutePolicies;
+import dev.trela.gatewayserver.routing.RouteTableProperties;
+import dev.trela.traffic.loadbalancer.TrelaLoadBalancerConfiguration;
 import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
 import io.github.resilience4j.timelimiter.TimeLimiterConfig;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.cloud.circuitbreaker.resilience4j.ReactiveResilience4JCircuitBreakerFactory;
 import org.springframework.cloud.circuitbreaker.resilience4j.Resilience4JConfigBuilder;
 import org.springframework.cloud.client.circuitbreaker.Customizer;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractNameValueGatewayFilterFactory;
+import org.springframework.cloud.gateway.filter.factory.AddResponseHeaderGatewayFilterFactory;
+import org.springframework.cloud.gateway.filter.factory.RequestRateLimiterGatewayFilterFactory;
+import org.springframework.cloud.gateway.filter.factory.SpringCloudCircuitBreakerFilterFactory;
 import org.springframework.cloud.gateway.filter.ratelimit.KeyResolver;
 import org.springframework.cloud.gateway.filter.ratelimit.RedisRateLimiter;
-import org.springframework.cloud.gateway.route.RouteLocator;
-import org.springframework.cloud.gateway.route.builder.RouteLocatorBuilder;
+import org.springframework.cloud.loadbalancer.annotation.LoadBalancerClients;
 import org.springframework.context.annotation.Bean;
-import org.springframework.http.HttpMethod;
 import reactor.core.publisher.Mono;
 
 import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
 
 @SpringBootApplication
+@LoadBalancerClients(defaultConfiguration = {TrelaLoadBalancerConfiguration.class, CanaryLoadBalancerConfiguration.class})
+@EnableConfigurationProperties({RouteTableProperties.class, AggregationProperties.class, FairQueueProperties.class,
+		MirrorProperties.class, CanaryProperties.class})
 public class GatewayserverApplication {
 
 	public static void main(String[] args) {
 		SpringApplication.run(GatewayserverApplication.class, args);
 	}
 
+	// filter chains referenced by trelabank.gateway.routes[*].policy
 	@Bean
-	public RouteLocator trelaBankRouteConfig(RouteLocatorBuilder routeLocatorBuilder) {
-		return routeLocatorBuilder.routes()
-
-				.route("accounts-route", p -> p
-						.path("/trelabank/accounts/**")
-						.filters(f -> f.rewritePath("/trelabank/accounts/(?<segment>.*)", "/${segment}")
-								.addResponseHeader("X-Response-Time", LocalDateTime.now().toString())
-								.circuitBreaker(config -> config.setName("accounts-circuitbreaker").setFallbackUri("forward:/contactSupport") )
-						)
-
-						.uri("lb://ACCOUNTS"))
-
-				.route("loans-route", p -> p
-						.path("/trelabank/loans/**")
-						.filters(f -> f.rewritePath("/trelabank/loans/(?<segment>.*)", "/${segment}")
-								.addResponseHeader("X-Response-Time", LocalDateTime.now().toString())
-								.retry(config -> config.setRetries(3)
-										.setMethods(HttpMethod.GET)
-										.setBackoff(Duration.ofMillis(100), Duration.ofMillis(1000), 2 , true)))
-
-						.uri("lb://LOANS"))
-
-				.route("cards-route", p -> p
-						.path("/trelabank/cards/**")
-						.filters(f -> f.rewritePath("/trelabank/cards/(?<segment>.*)", "/${segment}")
-								.addResponseHeader("X-Response-Time", LocalDateTime.now().toString())
-								.requestRateLimiter(config -> config.setRateLimiter(redisRateLimiter())
-										.setKeyResolver(userKeyResolver())))
-						.uri("lb://CARDS"))
-
-				.build();
+	public RoutePolicies trelaBankRoutePolicies(AddResponseHeaderGatewayFilterFactory addResponseHeader,
+												SpringCloudCircuitBreakerFilterFactory circuitBreaker,
+												RequestRateLimiterGatewayFilterFactory requestRateLimiter,
+												RequestCoalescingGatewayFilterFactory requestCoalescing,
+												AdaptiveConcurrencyLimitGatewayFilterFactory concurrencyLimit,
+												HedgingGatewayFilterFactory hedging,
+												BudgetedRetryGatewayFilterFactory budgetedRetry,
+												LastKnownGoodGatewayFilterFactory lastKnownGood,
+												FairQueueingGatewayFilterFactory fairQueueing,
+												MirroringGatewayFilterFactory mirroring,
+												CanaryGatewayFilterFactory canary,
+												AdaptiveTimeoutGatewayFilterFactory adaptiveTimeout) {
+		GatewayFilter responseTime = addResponseHeader.apply(new AbstractNameValueGatewayFilterFactory.NameValueConfig()
+				.setName("X-Response-Time").setValue(LocalDateTime.now().toString()));
+		return new RoutePolicies(Map.of(
+				"accounts", List.of(responseTime,
+						requestCoalescing.apply(new RequestCoalescingGatewayFilterFactory.Config()),
+						lastKnownGood.apply(new LastKnownGoodGatewayFilterFactory.Config()),
+						mirroring.apply(new MirroringGatewayFilterFactory.Config()),
+						fairQueueing.apply(new FairQueueingGatewayFilterFactory.Config()),
+						concurrencyLimit.apply(new AdaptiveConcurrencyLimitGatewayFilterFactory.Config()),
+						canary.apply(new CanaryGatewayFilterFactory.Config()),
+						circuitBreaker.apply(new SpringCloudCircuitBreakerFilterFactory.Config()
+								.setName("accounts-circuitbreaker").setFallbackUri("forward:/contactSupport")),
+						adaptiveTimeout.apply(new AdaptiveTimeoutGatewayFilterFactory.Config())),
+				"loans", List.of(responseTime,
+						budgetedRetry.apply(new BudgetedRetryGatewayFilterFactory.Config()),
+						fairQueueing.apply(new FairQueueingGatewayFilterFactory.Config()),
+						concurrencyLimit.apply(new AdaptiveConcurrencyLimitGatewayFilterFactory.Config()),
+						adaptiveTimeout.apply(new AdaptiveTimeoutGatewayFilterFactory.Config()),
+						hedging.apply(new HedgingGatewayFilterFactory.Config())),
+				"cards", List.of(responseTime,
+						requestRateLimiter.apply(new RequestRateLimiterGatewayFilterFactory.Config()
+								.setRateLimiter(redisRateLimiter()).setKeyResolver(userKeyResolver())),
+						fairQueueing.apply(new FairQueueingGatewayFilterFactory.Config()),
+						concurrencyLimit.apply(new AdaptiveConcurrencyLimitGatewayFilterFactory.Config()),
+						adaptiveTimeout.apply(new AdaptiveTimeoutGatewayFilterFactory.Config()))));
 	}
 
+	// the time limiter and the deadline forwarded to the services are the same budget; it is the
+	// backstop, the per route AdaptiveTimeout filter usually gives up well before it
 	@Bean
-	Customizer<ReactiveResilience4JCircuitBreakerFactory> circuitBreakerCustomizer() {
+	Customizer<ReactiveResilience4JCircuitBreakerFactory> circuitBreakerCustomizer(
+			@Value("${trelabank.deadline.budget:4s}") Duration deadlineBudget) {
 		return factory -> factory.configureDefault(id -> new Resilience4JConfigBuilder(id)
 				.circuitBreakerConfig(CircuitBreakerConfig.ofDefaults())
-				.timeLimiterConfig(TimeLimiterConfig.custom().timeoutDuration(Duration.ofSeconds(4)).build()).build());
+				.timeLimiterConfig(TimeLimiterConfig.custom().timeoutDuration(deadlineBudget).build()).build());
 	}
 
 
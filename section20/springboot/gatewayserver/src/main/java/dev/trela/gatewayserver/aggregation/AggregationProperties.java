@@ -0,0 +1,21 @@
+package dev.trela.gatewayserver.aggregation;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+@Data
+@ConfigurationProperties(prefix = "trelabank.aggregation")
+public class AggregationProperties {
+
+    // per source (accounts, loans, cards), defaultTimeout for the rest
+    private Map<String, Duration> timeouts = new HashMap<>();
+    private Duration defaultTimeout = Duration.ofSeconds(2);
+
+    public Duration timeoutFor(String source) {
+        return timeouts.getOrDefault(source, defaultTimeout);
+    }
+}
@@ -0,0 +1,18 @@
+package dev.trela.gatewayserver.aggregation;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.Map;
+
+// Customer-360: what each source returned (null when it failed) plus per-source outcome and
+// timing. partial is true when at least one source did not answer.
+public record CustomerAggregateDto(String mobileNumber,
+                                   JsonNode customer,
+                                   JsonNode loan,
+                                   JsonNode card,
+                                   boolean partial,
+                                   Map<String, SourceTiming> sources) {
+
+    public record SourceTiming(SourceResult.Status status, long elapsedMillis) {
+    }
+}
@@ -0,0 +1,105 @@
+package dev.trela.gatewayserver.aggregation;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import dev.trela.gatewayserver.filters.FilterUtility;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cloud.client.loadbalancer.reactive.LoadBalancedExchangeFilterFunction;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+// Fans out to accounts, loans and cards in parallel on the event loop. Every source has its own
+// timeout, cut to what is left of the request's deadline, and a failed source only leaves a hole
+// in the result instead of failing the request.
+@Service
+@Slf4j
+public class CustomerAggregationService {
+
+    private final WebClient webClient;
+    private final AggregationProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final FilterUtility filterUtility;
+
+    // not a @LoadBalanced builder bean - that would replace the plain builder MirroringGatewayFilterFactory needs
+    public CustomerAggregationService(WebClient.Builder webClientBuilder,
+                                      LoadBalancedExchangeFilterFunction loadBalancerFunction,
+                                      AggregationProperties properties, MeterRegistry meterRegistry,
+                                      FilterUtility filterUtility) {
+        this.webClient = webClientBuilder.filter(loadBalancerFunction).build();
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        this.filterUtility = filterUtility;
+    }
+
+    public Mono<CustomerAggregateDto> fetchCustomer360(String mobileNumber, String correlationId, ServerWebExchange exchange) {
+        return Mono.zip(
+                        fetch("accounts", "http://ACCOUNTS/api/fetch", mobileNumber, correlationId, exchange),
+                        fetch("loans", "http://LOANS/api/fetch", mobileNumber, correlationId, exchange),
+                        fetch("cards", "http://CARDS/api/fetch", mobileNumber, correlationId, exchange))
+                .map(results -> {
+                    Map<String, CustomerAggregateDto.SourceTiming> sources = new LinkedHashMap<>();
+                    sources.put("accounts", timing(results.getT1()));
+                    sources.put("loans", timing(results.getT2()));
+                    sources.put("cards", timing(results.getT3()));
+                    boolean partial = !(results.getT1().isOk() && results.getT2().isOk() && results.getT3().isOk());
+                    return new CustomerAggregateDto(mobileNumber, results.getT1().data(), results.getT2().data(),
+                            results.getT3().data(), partial, sources);
+                });
+    }
+
+    private Mono<SourceResult> fetch(String source, String url, String mobileNumber, String correlationId,
+                                     ServerWebExchange exchange) {
+        return Mono.defer(() -> {
+            Duration timeout = properties.timeoutFor(source);
+            Duration remaining = filterUtility.getRemainingDeadline(exchange);
+            if (remaining != null && remaining.compareTo(timeout) < 0) {
+                timeout = remaining;
+            }
+            long start = System.nanoTime();
+            return webClient.get()
+                    .uri(url + "?mobileNumber={mobileNumber}", mobileNumber)
+                    .header(FilterUtility.CORRELATION_ID, correlationId)
+                    .header(FilterUtility.DEADLINE, String.valueOf(timeout.toMillis()))
+                    .retrieve()
+                    .bodyToMono(JsonNode.class)
+                    .timeout(timeout)
+                    .map(body -> new SourceResult(SourceResult.Status.OK, elapsedMillis(start), body))
+                    .defaultIfEmpty(new SourceResult(SourceResult.Status.OK, elapsedMillis(start), null))
+                    .onErrorResume(e -> Mono.just(new SourceResult(statusOf(e), elapsedMillis(start), null)))
+                    .doOnNext(result -> {
+                        if (!result.isOk()) {
+                            log.debug("Customer-360 source {} failed with {} after {} ms", source, result.status(), result.elapsedMillis());
+                        }
+                        meterRegistry.timer("gateway.aggregation.source", "source", source, "status", result.status().name())
+                                .record(result.elapsedMillis(), TimeUnit.MILLISECONDS);
+                    });
+        });
+    }
+
+    private SourceResult.Status statusOf(Throwable error) {
+        if (error instanceof TimeoutException) {
+            return SourceResult.Status.TIMEOUT;
+        }
+        if (error instanceof WebClientResponseException.NotFound) {
+            return SourceResult.Status.NOT_FOUND;
+        }
+        return SourceResult.Status.ERROR;
+    }
+
+    private CustomerAggregateDto.SourceTiming timing(SourceResult result) {
+        return new CustomerAggregateDto.SourceTiming(result.status(), result.elapsedMillis());
+    }
+
+    private long elapsedMillis(long start) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    }
+}
@@ -0,0 +1,15 @@
+package dev.trela.gatewayserver.aggregation;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+// Outcome of one fan-out call: OK, NOT_FOUND, TIMEOUT or ERROR, with how long it took
+public record SourceResult(Status status, long elapsedMillis, JsonNode data) {
+
+    public enum Status {
+        OK, NOT_FOUND, TIMEOUT, ERROR
+    }
+
+    public boolean isOk() {
+        return status == Status.OK;
+    }
+}
@@ -0,0 +1,109 @@
+package dev.trela.gatewayserver.canary;
+
+import dev.trela.gatewayserver.hedging.LatencyWindow;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// Baseline vs canary comparison for one route. Samples accumulate until both versions have
+// minSamples, then p99 latency and error rate are compared and samples and counters start over,
+// so every verdict is about the last interval only.
+// A regression drops the canary weight to zero and keeps it there until the configured
+// weight changes (a new rollout attempt).
+public class CanaryAnalysis {
+
+    private final Version baseline = new Version();
+    private final Version canary = new Version();
+    private final AtomicLong nextEvaluationNanos = new AtomicLong(System.nanoTime());
+    private volatile int configuredWeight;
+    private volatile int weight;
+    private volatile long lastBaselineP99Nanos = -1;
+    private volatile long lastCanaryP99Nanos = -1;
+
+    public CanaryAnalysis(int configuredWeight) {
+        this.configuredWeight = configuredWeight;
+        this.weight = configuredWeight;
+    }
+
+    // a changed weight in configuration is a new rollout: forget the old verdict and samples
+    public synchronized void sync(CanaryProperties.Route config) {
+        if (config.getWeight() != configuredWeight) {
+            configuredWeight = config.getWeight();
+            weight = configuredWeight;
+            baseline.reset();
+            canary.reset();
+        }
+    }
+
+    public void record(boolean isCanary, long latencyNanos, boolean error) {
+        Version version = isCanary ? canary : baseline;
+        version.latency.record(latencyNanos);
+        version.total.increment();
+        if (error) {
+            version.errors.increment();
+        }
+    }
+
+    // true when this call rolled the canary back
+    public boolean maybeEvaluate(CanaryProperties.Route config) {
+        long now = System.nanoTime();
+        long next = nextEvaluationNanos.get();
+        if (now < next || !nextEvaluationNanos.compareAndSet(next, now + config.getEvaluationInterval().toNanos())) {
+            return false;
+        }
+        return evaluate(config);
+    }
+
+    private synchronized boolean evaluate(CanaryProperties.Route config) {
+        if (weight == 0) {
+            return false;
+        }
+        long baselineTotal = baseline.total.sum();
+        long canaryTotal = canary.total.sum();
+        long baselineP99 = baseline.latency.percentileNanos(0.99);
+        long canaryP99 = canary.latency.percentileNanos(0.99);
+        if (baselineTotal < config.getMinSamples() || canaryTotal < config.getMinSamples()
+                || baselineP99 < 0 || canaryP99 < 0) {
+            return false;
+        }
+        double baselineErrorRate = (double) baseline.errors.sum() / baselineTotal;
+        double canaryErrorRate = (double) canary.errors.sum() / canaryTotal;
+        lastBaselineP99Nanos = baselineP99;
+        lastCanaryP99Nanos = canaryP99;
+        baseline.reset();
+        canary.reset();
+
+        boolean slower = canaryP99 > baselineP99 * config.getMaxLatencyRatio();
+        boolean failing = canaryErrorRate > baselineErrorRate + config.getMaxErrorRateIncrease();
+        if (slower || failing) {
+            weight = 0;
+            return true;
+        }
+        return false;
+    }
+
+    public int getWeight() {
+        return weight;
+    }
+
+    // p99s of the last evaluation, -1 before the first one
+    public long baselineP99Nanos() {
+        return lastBaselineP99Nanos;
+    }
+
+    public long canaryP99Nanos() {
+        return lastCanaryP99Nanos;
+    }
+
+    private static final class Version {
+        private final LatencyWindow latency = new LatencyWindow(1024, 0.99);
+        private final LongAdder total = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+
+        private void reset() {
+            latency.reset();
+            total.reset();
+            errors.reset();
+        }
+    }
+}
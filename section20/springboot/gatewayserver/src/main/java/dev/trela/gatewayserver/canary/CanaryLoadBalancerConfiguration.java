@@ -0,0 +1,18 @@
+package dev.trela.gatewayserver.canary;
+
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+
+// Per-client LoadBalancer configuration of the gateway, next to TrelaLoadBalancerConfiguration.
+// The version filter wraps the cached list so it sees every request.
+public class CanaryLoadBalancerConfiguration {
+
+    @Bean
+    public ServiceInstanceListSupplier versionAwareServiceInstanceListSupplier(ConfigurableApplicationContext context) {
+        return new VersionServiceInstanceListSupplier(ServiceInstanceListSupplier.builder()
+                .withDiscoveryClient()
+                .withCaching()
+                .build(context));
+    }
+}
@@ -0,0 +1,31 @@
+package dev.trela.gatewayserver.canary;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+// Canary split per route id. Versions are the `version` Eureka metadata of the instances
+// (eureka.instance.metadata-map.version), weight is the canary's share in percent.
+@Data
+@ConfigurationProperties(prefix = "trelabank.gateway.canary")
+public class CanaryProperties {
+
+    private Map<String, Route> routes = new HashMap<>();
+
+    @Data
+    public static class Route {
+        private String baselineVersion = "v1";
+        private String canaryVersion = "v2";
+        private int weight = 0;
+        // roll back when canary p99 > baseline p99 * maxLatencyRatio
+        private double maxLatencyRatio = 1.5;
+        // or when canary error rate > baseline error rate + maxErrorRateIncrease
+        private double maxErrorRateIncrease = 0.02;
+        // per version, before any verdict
+        private int minSamples = 200;
+        private Duration evaluationInterval = Duration.ofSeconds(30);
+    }
+}
@@ -0,0 +1,50 @@
+package dev.trela.gatewayserver.canary;
+
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.client.loadbalancer.RequestDataContext;
+import org.springframework.cloud.loadbalancer.core.DelegatingServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+
+// Narrows the instances to the version asked for in the trelabank-version request header
+// (set by the canary filter). If no instance carries that version all instances are returned,
+// so a missing canary never turns into an outage.
+public class VersionServiceInstanceListSupplier extends DelegatingServiceInstanceListSupplier {
+
+    public static final String VERSION_HEADER = "trelabank-version";
+    public static final String VERSION_METADATA = "version";
+
+    public VersionServiceInstanceListSupplier(ServiceInstanceListSupplier delegate) {
+        super(delegate);
+    }
+
+    @Override
+    public Flux<List<ServiceInstance>> get() {
+        return delegate.get();
+    }
+
+    @Override
+    public Flux<List<ServiceInstance>> get(Request request) {
+        String version = requestedVersion(request);
+        if (version == null) {
+            return delegate.get(request);
+        }
+        return delegate.get(request).map(instances -> {
+            List<ServiceInstance> matching = instances.stream()
+                    .filter(instance -> version.equals(instance.getMetadata().get(VERSION_METADATA)))
+                    .toList();
+            return matching.isEmpty() ? instances : matching;
+        });
+    }
+
+    private String requestedVersion(Request request) {
+        if (request.getContext() instanceof RequestDataContext context && context.getClientRequest() != null
+                && context.getClientRequest().getHeaders() != null) {
+            return context.getClientRequest().getHeaders().getFirst(VERSION_HEADER);
+        }
+        return null;
+    }
+}
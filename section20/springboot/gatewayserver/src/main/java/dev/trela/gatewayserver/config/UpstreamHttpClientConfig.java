@@ -0,0 +1,35 @@
+package dev.trela.gatewayserver.config;
+
+import dev.trela.gatewayserver.upstream.PerRouteNettyRoutingFilter;
+import dev.trela.gatewayserver.upstream.UpstreamPoolProperties;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.web.ServerProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.cloud.gateway.config.HttpClientCustomizer;
+import org.springframework.cloud.gateway.config.HttpClientProperties;
+import org.springframework.cloud.gateway.config.HttpClientSslConfigurer;
+import org.springframework.cloud.gateway.filter.headers.HttpHeadersFilter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import reactor.netty.http.client.HttpClient;
+
+import java.util.List;
+
+// replaces the built-in routing filter, which is switched off with
+// spring.cloud.gateway.server.webflux.global-filter.netty-routing.enabled=false
+@Configuration
+@EnableConfigurationProperties(UpstreamPoolProperties.class)
+public class UpstreamHttpClientConfig {
+
+    @Bean
+    public PerRouteNettyRoutingFilter perRouteNettyRoutingFilter(HttpClient httpClient,
+                                                                 ObjectProvider<List<HttpHeadersFilter>> headersFilters,
+                                                                 HttpClientProperties httpClientProperties,
+                                                                 ServerProperties serverProperties,
+                                                                 HttpClientSslConfigurer sslConfigurer,
+                                                                 ObjectProvider<List<HttpClientCustomizer>> customizers,
+                                                                 UpstreamPoolProperties upstreamPoolProperties) {
+        return new PerRouteNettyRoutingFilter(httpClient, headersFilters, httpClientProperties, serverProperties,
+                sslConfigurer, customizers, upstreamPoolProperties);
+    }
+}
@@ -0,0 +1,50 @@
+package dev.trela.gatewayserver.controller;
+
+import dev.trela.gatewayserver.aggregation.CustomerAggregateDto;
+import dev.trela.gatewayserver.aggregation.CustomerAggregationService;
+import dev.trela.gatewayserver.aggregation.SourceResult;
+import dev.trela.gatewayserver.filters.DeadlineFilter;
+import dev.trela.gatewayserver.filters.FilterUtility;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.util.UUID;
+
+@RestController
+@RequiredArgsConstructor
+public class CustomerAggregationController {
+
+    private final CustomerAggregationService customerAggregationService;
+    private final DeadlineFilter deadlineFilter;
+
+    // reactive alternative to accounts' /api/fetchCustomerDetails
+    @GetMapping("/trelabank/customers/360")
+    public Mono<ResponseEntity<CustomerAggregateDto>> fetchCustomer360(
+            @RequestHeader(value = FilterUtility.CORRELATION_ID, required = false) String correlationId,
+            @RequestParam String mobileNumber, ServerWebExchange exchange) {
+        String id = correlationId != null ? correlationId : UUID.randomUUID().toString();
+        deadlineFilter.start(exchange);
+        return customerAggregationService.fetchCustomer360(mobileNumber, id, exchange)
+                .map(aggregate -> ResponseEntity.status(statusOf(aggregate))
+                        .header(FilterUtility.CORRELATION_ID, id)
+                        .body(aggregate));
+    }
+
+    // without the customer the rest is meaningless; loans and cards may be missing
+    private HttpStatus statusOf(CustomerAggregateDto aggregate) {
+        SourceResult.Status accounts = aggregate.sources().get("accounts").status();
+        return switch (accounts) {
+            case OK -> HttpStatus.OK;
+            case NOT_FOUND -> HttpStatus.NOT_FOUND;
+            case TIMEOUT -> HttpStatus.GATEWAY_TIMEOUT;
+            case ERROR -> HttpStatus.BAD_GATEWAY;
+        };
+    }
+}
@@ -1,13 +1,46 @@
 package dev.trela.gatewayserver.controller;
 
+import dev.trela.gatewayserver.fallback.LastKnownGoodStore;
+import dev.trela.gatewayserver.filters.FilterUtility;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ServerWebExchange;
 import reactor.core.publisher.Mono;
 
+import java.time.Duration;
+import java.time.Instant;
+
 @RestController
+@RequiredArgsConstructor
 public class FallbackController {
+
+    private final LastKnownGoodStore lastKnownGoodStore;
+    private final FilterUtility filterUtility;
+    private final MeterRegistry meterRegistry;
+
+    // stale-if-error: the last good answer for the same GET, the support message only on a miss
     @RequestMapping("/contactSupport")
-    public Mono<String> contactSupport(){
-        return Mono.just("An error occured. Please contact support.");
+    public Mono<ResponseEntity<?>> contactSupport(ServerWebExchange exchange){
+        if (HttpMethod.GET.equals(exchange.getRequest().getMethod())) {
+            LastKnownGoodStore.StoredResponse stored = lastKnownGoodStore.get(filterUtility.getRequestKey(exchange));
+            if (stored != null) {
+                meterRegistry.counter("gateway.fallback.last-known-good", "result", "hit").increment();
+                long age = Duration.between(stored.storedAt(), Instant.now()).toSeconds();
+                ResponseEntity.BodyBuilder response = ResponseEntity.status(stored.status())
+                        .header(HttpHeaders.WARNING, "110 - \"Response is Stale\"")
+                        .header(HttpHeaders.AGE, String.valueOf(age));
+                if (stored.contentType() != null) {
+                    response.contentType(stored.contentType());
+                }
+                return Mono.just(response.body(stored.body()));
+            }
+            meterRegistry.counter("gateway.fallback.last-known-good", "result", "miss").increment();
+        }
+        return Mono.just(ResponseEntity.ok("An error occured. Please contact support."));
     }
 }
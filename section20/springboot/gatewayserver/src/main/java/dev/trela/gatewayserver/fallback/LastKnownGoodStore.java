@@ -0,0 +1,58 @@
+package dev.trela.gatewayserver.fallback;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Last successful GET response per request key, LRU-bounded. Writes are handed off to a
+// separate scheduler so recording never runs on the proxy path.
+@Component
+public class LastKnownGoodStore {
+
+    private final Map<String, StoredResponse> responses;
+    private final Scheduler writer = Schedulers.newSingle("last-known-good", true);
+
+    public LastKnownGoodStore(@Value("${trelabank.fallback.last-known-good.max-entries:1000}") int maxEntries,
+                              MeterRegistry meterRegistry) {
+        this.responses = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, StoredResponse> eldest) {
+                return size() > maxEntries;
+            }
+        };
+        Gauge.builder("gateway.fallback.last-known-good.entries", this, LastKnownGoodStore::size)
+                .register(meterRegistry);
+    }
+
+    public void putAsync(String key, StoredResponse response) {
+        writer.schedule(() -> {
+            synchronized (responses) {
+                responses.put(key, response);
+            }
+        });
+    }
+
+    public StoredResponse get(String key) {
+        synchronized (responses) {
+            return responses.get(key);
+        }
+    }
+
+    private int size() {
+        synchronized (responses) {
+            return responses.size();
+        }
+    }
+
+    public record StoredResponse(HttpStatusCode status, MediaType contentType, byte[] body, Instant storedAt) {
+    }
+}
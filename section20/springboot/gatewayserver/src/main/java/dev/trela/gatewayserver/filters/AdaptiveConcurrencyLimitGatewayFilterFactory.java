@@ -0,0 +1,96 @@
+package dev.trela.gatewayserver.filters;
+
+import dev.trela.gatewayserver.limiter.GradientConcurrencyLimit;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.SignalType;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Per route in-flight limit learned from upstream RTTs; requests over the limit get a fast 503.
+@Component
+@Slf4j
+public class AdaptiveConcurrencyLimitGatewayFilterFactory
+        extends AbstractGatewayFilterFactory<AdaptiveConcurrencyLimitGatewayFilterFactory.Config> {
+
+    private final FilterUtility filterUtility;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, GradientConcurrencyLimit> limits = new ConcurrentHashMap<>();
+
+    public AdaptiveConcurrencyLimitGatewayFilterFactory(FilterUtility filterUtility, MeterRegistry meterRegistry) {
+        super(Config.class);
+        this.filterUtility = filterUtility;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        return (exchange, chain) -> {
+            String routeId = filterUtility.getRouteId(exchange);
+            GradientConcurrencyLimit limit = limits.computeIfAbsent(routeId, id -> createLimit(id, config));
+
+            if (!limit.tryAcquire()) {
+                meterRegistry.counter("gateway.concurrency.requests", "route", routeId, "outcome", "rejected").increment();
+                log.debug("Concurrency limit {} reached for route {}", limit.getLimit(), routeId);
+                ServerHttpResponse response = exchange.getResponse();
+                response.setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
+                response.getHeaders().set(HttpHeaders.RETRY_AFTER, String.valueOf(config.getRetryAfter().toSeconds()));
+                return response.setComplete();
+            }
+
+            meterRegistry.counter("gateway.concurrency.requests", "route", routeId, "outcome", "accepted").increment();
+            long start = System.nanoTime();
+            return chain.filter(exchange).doFinally(signal -> {
+                if (signal == SignalType.CANCEL) {
+                    limit.release();
+                    return;
+                }
+                HttpStatusCode status = exchange.getResponse().getStatusCode();
+                // a circuit breaker fallback answers fast with a 200, it is not a healthy upstream sample
+                boolean dropped = signal == SignalType.ON_ERROR || (status != null && status.is5xxServerError())
+                        || exchange.getAttribute(ServerWebExchangeUtils.CIRCUITBREAKER_EXECUTION_EXCEPTION_ATTR) != null;
+                limit.release(System.nanoTime() - start, dropped);
+            });
+        };
+    }
+
+    // the current limit of the route, so that the fair queue in front of it admits exactly as many
+    public int currentLimit(String routeId, int fallback) {
+        GradientConcurrencyLimit limit = limits.get(routeId);
+        return limit != null ? limit.getLimit() : fallback;
+    }
+
+    private GradientConcurrencyLimit createLimit(String routeId, Config config) {
+        GradientConcurrencyLimit limit = new GradientConcurrencyLimit(config.getInitialLimit(), config.getMinLimit(),
+                config.getMaxLimit(), config.getSmoothing(), config.getRttTolerance(), config.getLongWindow());
+        Gauge.builder("gateway.concurrency.limit", limit, GradientConcurrencyLimit::getLimit)
+                .tag("route", routeId).register(meterRegistry);
+        Gauge.builder("gateway.concurrency.inflight", limit, GradientConcurrencyLimit::getInFlight)
+                .tag("route", routeId).register(meterRegistry);
+        return limit;
+    }
+
+    @Data
+    public static class Config {
+        private int initialLimit = 20;
+        private int minLimit = 5;
+        private int maxLimit = 200;
+        private double smoothing = 0.2;
+        // how much the short RTT may exceed the long RTT before the limit starts shrinking
+        private double rttTolerance = 1.5;
+        private int longWindow = 600;
+        private Duration retryAfter = Duration.ofSeconds(1);
+    }
+}
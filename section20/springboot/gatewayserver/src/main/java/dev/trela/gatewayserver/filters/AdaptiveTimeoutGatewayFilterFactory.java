@@ -0,0 +1,65 @@
+package dev.trela.gatewayserver.filters;
+
+import dev.trela.traffic.timeout.AdaptiveTimeouts;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.TimeoutException;
+
+// Times the rest of the route out after a multiple of its recent p99 (see AdaptiveTimeouts),
+// never later than the request's deadline. Fails like Spring Cloud Gateway's own response
+// timeout - a 504 caused by a TimeoutException - so retry and circuit breaker filters in front
+// of it treat it as a timed out attempt.
+@Component
+@Slf4j
+public class AdaptiveTimeoutGatewayFilterFactory
+        extends AbstractGatewayFilterFactory<AdaptiveTimeoutGatewayFilterFactory.Config> {
+
+    private final FilterUtility filterUtility;
+    private final AdaptiveTimeouts adaptiveTimeouts;
+
+    public AdaptiveTimeoutGatewayFilterFactory(FilterUtility filterUtility, AdaptiveTimeouts adaptiveTimeouts) {
+        super(Config.class);
+        this.filterUtility = filterUtility;
+        this.adaptiveTimeouts = adaptiveTimeouts;
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        return (exchange, chain) -> {
+            String endpoint = "route:" + filterUtility.getRouteId(exchange);
+            Duration timeout = adaptiveTimeouts.timeoutFor(endpoint);
+            if (config.isCapAtDeadline()) {
+                timeout = capAtDeadline(exchange, timeout);
+            }
+            Duration effective = timeout;
+            long start = System.nanoTime();
+            return chain.filter(exchange)
+                    .doOnSuccess(done -> adaptiveTimeouts.record(endpoint, System.nanoTime() - start))
+                    .timeout(effective, Mono.defer(() -> {
+                        adaptiveTimeouts.recordTimeout(endpoint);
+                        log.debug("{} timed out after {}ms", endpoint, effective.toMillis());
+                        TimeoutException cause = new TimeoutException("Response took longer than " + effective.toMillis() + "ms");
+                        return Mono.error(new ResponseStatusException(HttpStatus.GATEWAY_TIMEOUT, cause.getMessage(), cause));
+                    }));
+        };
+    }
+
+    private Duration capAtDeadline(ServerWebExchange exchange, Duration timeout) {
+        Duration remaining = filterUtility.getRemainingDeadline(exchange);
+        return remaining != null && remaining.compareTo(timeout) < 0 ? remaining : timeout;
+    }
+
+    @Data
+    public static class Config {
+        private boolean capAtDeadline = true;
+    }
+}
@@ -0,0 +1,171 @@
+package dev.trela.gatewayserver.filters;
+
+import dev.trela.traffic.budget.RequestBudget;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.netty.Connection;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeoutException;
+
+// Retries capped by a token bucket instead of a fixed count per request: every successful
+// response deposits budgetPercent/100 tokens, every retry spends one from both the route and
+// the upstream bucket. When either is empty the failure is returned as is, so a struggling
+// upstream sees at most ~budgetPercent% extra load instead of (retries + 1)x.
+// Replaces the built-in retry filter; like it, it relies on NettyWriteResponseFilter writing
+// the body only after the route filters completed, so it has to come before the routing (and
+// before hedging, which hands its response back uncommitted). No retry is started that could
+// not finish within the request's deadline.
+@Component
+@Slf4j
+public class BudgetedRetryGatewayFilterFactory extends AbstractGatewayFilterFactory<BudgetedRetryGatewayFilterFactory.Config> {
+
+    private final FilterUtility filterUtility;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, RequestBudget> budgets = new ConcurrentHashMap<>();
+
+    public BudgetedRetryGatewayFilterFactory(FilterUtility filterUtility, MeterRegistry meterRegistry) {
+        super(Config.class);
+        this.filterUtility = filterUtility;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        return (exchange, chain) -> {
+            if (!config.getMethods().contains(exchange.getRequest().getMethod())) {
+                return chain.filter(exchange);
+            }
+            String routeId = filterUtility.getRouteId(exchange);
+            Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+            String upstream = route != null && route.getUri().getHost() != null ? route.getUri().getHost() : routeId;
+            RequestBudget routeBudget = budget("route", routeId, config);
+            RequestBudget upstreamBudget = budget("upstream", upstream, config);
+            return attempt(exchange, chain, config, 0, routeBudget, upstreamBudget, routeId, upstream);
+        };
+    }
+
+    private Mono<Void> attempt(ServerWebExchange exchange, GatewayFilterChain chain, Config config, int iteration,
+                               RequestBudget routeBudget, RequestBudget upstreamBudget, String routeId, String upstream) {
+        return chain.filter(exchange)
+                .then(Mono.fromSupplier(Optional::<Throwable>empty))
+                .onErrorResume(error -> Mono.just(Optional.of(error)))
+                .flatMap(failure -> {
+                    HttpStatusCode status = exchange.getResponse().getStatusCode();
+                    boolean retryable = failure.map(this::isRetryableException)
+                            .orElseGet(() -> status != null && status.is5xxServerError());
+                    if (!retryable) {
+                        if (failure.isEmpty()) {
+                            routeBudget.deposit();
+                            upstreamBudget.deposit();
+                        }
+                        return failure.<Mono<Void>>map(Mono::error).orElseGet(Mono::empty);
+                    }
+                    Mono<Void> giveUp = failure.<Mono<Void>>map(Mono::error).orElseGet(Mono::empty);
+                    if (iteration >= config.getRetries() || exchange.getResponse().isCommitted()) {
+                        return giveUp;
+                    }
+                    Duration backoff = backoff(config, iteration);
+                    Duration remaining = filterUtility.getRemainingDeadline(exchange);
+                    if (remaining != null && remaining.compareTo(backoff) <= 0) {
+                        return suppressed(giveUp, routeId, upstream, "deadline");
+                    }
+                    if (!upstreamBudget.tryWithdraw()) {
+                        return suppressed(giveUp, routeId, upstream, "upstream");
+                    }
+                    if (!routeBudget.tryWithdraw()) {
+                        upstreamBudget.refund();
+                        return suppressed(giveUp, routeId, upstream, "route");
+                    }
+                    meterRegistry.counter("gateway.retry.attempts", "route", routeId, "upstream", upstream).increment();
+                    log.debug("Retrying {} on route {} (attempt {})", exchange.getRequest().getURI(), routeId, iteration + 1);
+                    reset(exchange);
+                    return Mono.delay(backoff)
+                            .then(Mono.defer(() -> attempt(exchange, chain, config, iteration + 1,
+                                    routeBudget, upstreamBudget, routeId, upstream)));
+                });
+    }
+
+    private Mono<Void> suppressed(Mono<Void> giveUp, String routeId, String upstream, String exhausted) {
+        meterRegistry.counter("gateway.retry.suppressed", "route", routeId, "upstream", upstream,
+                "budget", exhausted).increment();
+        return giveUp;
+    }
+
+    // connect failures and resets are IOExceptions; a gateway timeout (504) wraps the TimeoutException that caused it
+    private boolean isRetryableException(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof IOException || cause instanceof TimeoutException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // exponential, then spread by +-jitter so that clients failing together do not retry in lockstep
+    private Duration backoff(Config config, int iteration) {
+        long delay = config.getFirstBackoff().toMillis() * (long) Math.pow(config.getFactor(), iteration);
+        double spread = delay * config.getJitter() * (2 * ThreadLocalRandom.current().nextDouble() - 1);
+        long jittered = Math.min(config.getMaxBackoff().toMillis(), Math.round(delay + spread));
+        return Duration.ofMillis(Math.max(0, jittered));
+    }
+
+    // same reset the built-in retry filter does between attempts
+    private void reset(ServerWebExchange exchange) {
+        Connection connection = exchange.getAttribute(ServerWebExchangeUtils.CLIENT_RESPONSE_CONN_ATTR);
+        if (connection != null) {
+            connection.dispose();
+            exchange.getAttributes().remove(ServerWebExchangeUtils.CLIENT_RESPONSE_CONN_ATTR);
+        }
+        Set<String> addedHeaders = exchange.getAttributeOrDefault(
+                ServerWebExchangeUtils.CLIENT_RESPONSE_HEADER_NAMES, Collections.emptySet());
+        addedHeaders.forEach(header -> exchange.getResponse().getHeaders().remove(header));
+        ServerWebExchangeUtils.removeAlreadyRouted(exchange);
+    }
+
+    private RequestBudget budget(String scope, String name, Config config) {
+        return budgets.computeIfAbsent(scope + ":" + name, key -> {
+            // starts full so that a cold route can still retry
+            RequestBudget budget = new RequestBudget(config.getBudgetPercent() / 100.0, config.getMaxBudgetTokens(),
+                    config.getMaxBudgetTokens());
+            Gauge.builder("gateway.retry.budget.tokens", budget, RequestBudget::getTokens)
+                    .tag("scope", scope)
+                    .tag("name", name)
+                    .register(meterRegistry);
+            return budget;
+        });
+    }
+
+    @Data
+    public static class Config {
+        private int retries = 3;
+        private List<HttpMethod> methods = List.of(HttpMethod.GET);
+        private Duration firstBackoff = Duration.ofMillis(100);
+        private Duration maxBackoff = Duration.ofMillis(1000);
+        private int factor = 2;
+        private double jitter = 0.5;
+        // retries allowed as a percentage of recent successful requests
+        private double budgetPercent = 10;
+        private double maxBudgetTokens = 10;
+    }
+}
@@ -0,0 +1,88 @@
+package dev.trela.gatewayserver.filters;
+
+import dev.trela.gatewayserver.canary.CanaryAnalysis;
+import dev.trela.gatewayserver.canary.CanaryProperties;
+import dev.trela.gatewayserver.canary.VersionServiceInstanceListSupplier;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.SignalType;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Weighted baseline/canary split. Every request is pinned to one version through the
+// trelabank-version header, which VersionServiceInstanceListSupplier turns into an instance
+// subset. Latency and errors are compared per version and a regressing canary is cut to 0%.
+@Component
+@Slf4j
+public class CanaryGatewayFilterFactory extends AbstractGatewayFilterFactory<CanaryGatewayFilterFactory.Config> {
+
+    private final FilterUtility filterUtility;
+    private final MeterRegistry meterRegistry;
+    private final CanaryProperties properties;
+    private final Map<String, CanaryAnalysis> analyses = new ConcurrentHashMap<>();
+
+    public CanaryGatewayFilterFactory(FilterUtility filterUtility, MeterRegistry meterRegistry, CanaryProperties properties) {
+        super(Config.class);
+        this.filterUtility = filterUtility;
+        this.meterRegistry = meterRegistry;
+        this.properties = properties;
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        return (exchange, chain) -> {
+            String routeId = filterUtility.getRouteId(exchange);
+            CanaryProperties.Route route = properties.getRoutes().get(routeId);
+            if (route == null) {
+                return chain.filter(exchange);
+            }
+            CanaryAnalysis analysis = analyses.computeIfAbsent(routeId, id -> createAnalysis(id, route));
+            analysis.sync(route);
+
+            boolean canary = ThreadLocalRandom.current().nextInt(100) < analysis.getWeight();
+            String version = canary ? route.getCanaryVersion() : route.getBaselineVersion();
+            ServerWebExchange pinned = filterUtility.setRequestHeader(exchange,
+                    VersionServiceInstanceListSupplier.VERSION_HEADER, version);
+            long start = System.nanoTime();
+            return chain.filter(pinned).doFinally(signal -> {
+                if (signal == SignalType.CANCEL) {
+                    return;
+                }
+                HttpStatusCode status = pinned.getResponse().getStatusCode();
+                // a circuit breaker fallback answers with a 200, but the version behind it failed
+                boolean error = signal == SignalType.ON_ERROR || (status != null && status.is5xxServerError())
+                        || pinned.getAttribute(ServerWebExchangeUtils.CIRCUITBREAKER_EXECUTION_EXCEPTION_ATTR) != null;
+                long latency = System.nanoTime() - start;
+                analysis.record(canary, latency, error);
+                meterRegistry.timer("gateway.canary.latency", "route", routeId, "version", version,
+                        "outcome", error ? "error" : "success").record(latency, TimeUnit.NANOSECONDS);
+                if (analysis.maybeEvaluate(route)) {
+                    meterRegistry.counter("gateway.canary.rollbacks", "route", routeId).increment();
+                    log.warn("Canary {} on route {} rolled back (latency or error rate regression): p99 {} ms vs baseline {} ms", route.getCanaryVersion(),
+                            routeId, TimeUnit.NANOSECONDS.toMillis(analysis.canaryP99Nanos()),
+                            TimeUnit.NANOSECONDS.toMillis(analysis.baselineP99Nanos()));
+                }
+            });
+        };
+    }
+
+    private CanaryAnalysis createAnalysis(String routeId, CanaryProperties.Route route) {
+        CanaryAnalysis analysis = new CanaryAnalysis(route.getWeight());
+        Gauge.builder("gateway.canary.weight", analysis, CanaryAnalysis::getWeight)
+                .tag("route", routeId).register(meterRegistry);
+        return analysis;
+    }
+
+    public static class Config {
+    }
+}
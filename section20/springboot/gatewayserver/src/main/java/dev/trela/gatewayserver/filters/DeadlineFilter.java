@@ -0,0 +1,48 @@
+package dev.trela.gatewayserver.filters;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+// Starts the request's time budget. Only the point in time it runs out is kept on the exchange;
+// DeadlineHeadersFilter forwards what is left of it with every upstream attempt. Handlers outside
+// the routes (customer-360) call start themselves, global filters do not run for them.
+@Order(-4)
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class DeadlineFilter implements GlobalFilter {
+
+    private final FilterUtility filterUtility;
+
+    @Value("${trelabank.deadline.budget:4s}")
+    private Duration budget;
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        start(exchange);
+        return chain.filter(exchange);
+    }
+
+    public void start(ServerWebExchange exchange) {
+        long budgetMillis = budget.toMillis();
+        String requested = exchange.getRequest().getHeaders().getFirst(FilterUtility.DEADLINE);
+        if (requested != null) {
+            try {
+                // a client may ask for less time than we would give it, never for more
+                budgetMillis = Math.min(budgetMillis, Long.parseLong(requested.trim()));
+            } catch (NumberFormatException e) {
+                log.debug("Ignoring malformed {} header: {}", FilterUtility.DEADLINE, requested);
+            }
+        }
+        filterUtility.setDeadline(exchange, budgetMillis);
+    }
+}
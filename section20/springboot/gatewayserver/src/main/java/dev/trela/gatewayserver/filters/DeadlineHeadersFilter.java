@@ -0,0 +1,30 @@
+package dev.trela.gatewayserver.filters;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.cloud.gateway.filter.headers.HttpHeadersFilter;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+
+import java.time.Duration;
+
+// Writes the remaining budget on every request that leaves the gateway. Header filters run per
+// upstream call, so retries, hedges and shadow copies each forward the time actually left.
+@Component
+@RequiredArgsConstructor
+public class DeadlineHeadersFilter implements HttpHeadersFilter {
+
+    private final FilterUtility filterUtility;
+
+    @Override
+    public HttpHeaders filter(HttpHeaders input, ServerWebExchange exchange) {
+        Duration remaining = filterUtility.getRemainingDeadline(exchange);
+        if (remaining == null) {
+            return input;
+        }
+        HttpHeaders filtered = new HttpHeaders();
+        filtered.putAll(input);
+        filtered.set(FilterUtility.DEADLINE, String.valueOf(remaining.toMillis()));
+        return filtered;
+    }
+}
@@ -0,0 +1,133 @@
+package dev.trela.gatewayserver.filters;
+
+import dev.trela.gatewayserver.limiter.FairQueueProperties;
+import dev.trela.gatewayserver.limiter.WeightedFairQueue;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.filter.ratelimit.KeyResolver;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Per route upstream slots shared between user keys by weighted fair queuing: requests over
+// the route's adaptive concurrency limit wait in their key's queue and interactive tiers get
+// slots ahead of bulk ones, so the limit filter behind it sees at most what it allows instead
+// of turning the excess into 503s. maxConcurrent only applies until the route has a limit.
+// A full key queue answers 429, a request that waited longer than maxWait gets 503.
+@Component
+@Slf4j
+public class FairQueueingGatewayFilterFactory
+        extends AbstractGatewayFilterFactory<FairQueueingGatewayFilterFactory.Config> {
+
+    private final FilterUtility filterUtility;
+    private final MeterRegistry meterRegistry;
+    private final KeyResolver userKeyResolver;
+    private final FairQueueProperties properties;
+    private final AdaptiveConcurrencyLimitGatewayFilterFactory concurrencyLimit;
+    private final Map<String, WeightedFairQueue> queues = new ConcurrentHashMap<>();
+
+    public FairQueueingGatewayFilterFactory(FilterUtility filterUtility, MeterRegistry meterRegistry,
+                                            KeyResolver userKeyResolver, FairQueueProperties properties,
+                                            AdaptiveConcurrencyLimitGatewayFilterFactory concurrencyLimit) {
+        super(Config.class);
+        this.filterUtility = filterUtility;
+        this.meterRegistry = meterRegistry;
+        this.userKeyResolver = userKeyResolver;
+        this.properties = properties;
+        this.concurrencyLimit = concurrencyLimit;
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        return (exchange, chain) -> {
+            String routeId = filterUtility.getRouteId(exchange);
+            WeightedFairQueue queue = queues.computeIfAbsent(routeId, id -> createQueue(id, config));
+            return userKeyResolver.resolve(exchange)
+                    .defaultIfEmpty("annonymous")
+                    .flatMap(key -> {
+                        String tier = properties.tierOf(key);
+                        return acquire(queue, key, properties.weightOf(tier), routeId, tier)
+                                .timeout(config.getMaxWait(), Mono.error(() -> new Rejected("timeout")))
+                                .then(Mono.just(true))
+                                .onErrorResume(Rejected.class, rejected -> reject(exchange, rejected, routeId, tier, config)
+                                        .then(Mono.just(false)))
+                                .flatMap(admitted -> admitted
+                                        ? chain.filter(exchange).doFinally(signal -> queue.release())
+                                        : Mono.empty());
+                    });
+        };
+    }
+
+    private Mono<Void> acquire(WeightedFairQueue queue, String key, int weight, String routeId, String tier) {
+        long start = System.nanoTime();
+        return Mono.<Void>create(sink -> {
+                    WeightedFairQueue.Ticket ticket = queue.enqueue(key, weight, sink::success);
+                    if (ticket == null) {
+                        sink.error(new Rejected("queue_full"));
+                        return;
+                    }
+                    if (ticket.isGranted()) {
+                        sink.success();
+                        return;
+                    }
+                    sink.onCancel(() -> queue.cancel(ticket));
+                })
+                .doOnSuccess(granted -> waitTimer(routeId, tier).record(Duration.ofNanos(System.nanoTime() - start)));
+    }
+
+    private Mono<Void> reject(ServerWebExchange exchange, Rejected rejected, String routeId, String tier, Config config) {
+        meterRegistry.counter("gateway.fairqueue.rejected", "route", routeId, "tier", tier, "reason", rejected.getMessage())
+                .increment();
+        log.debug("Fair queue on route {} rejected a {} request: {}", routeId, tier, rejected.getMessage());
+        ServerHttpResponse response = exchange.getResponse();
+        response.setStatusCode("queue_full".equals(rejected.getMessage())
+                ? HttpStatus.TOO_MANY_REQUESTS : HttpStatus.SERVICE_UNAVAILABLE);
+        response.getHeaders().set(HttpHeaders.RETRY_AFTER, String.valueOf(config.getRetryAfter().toSeconds()));
+        return response.setComplete();
+    }
+
+    private Timer waitTimer(String routeId, String tier) {
+        return Timer.builder("gateway.fairqueue.wait")
+                .tag("route", routeId)
+                .tag("tier", tier)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    private WeightedFairQueue createQueue(String routeId, Config config) {
+        WeightedFairQueue queue = new WeightedFairQueue(
+                () -> concurrencyLimit.currentLimit(routeId, config.getMaxConcurrent()), config.getMaxQueuePerKey());
+        Gauge.builder("gateway.fairqueue.queued", queue, WeightedFairQueue::getQueued)
+                .tag("route", routeId).register(meterRegistry);
+        Gauge.builder("gateway.fairqueue.inflight", queue, WeightedFairQueue::getInFlight)
+                .tag("route", routeId).register(meterRegistry);
+        return queue;
+    }
+
+    @Data
+    public static class Config {
+        // the adaptive limit's initial limit
+        private int maxConcurrent = 20;
+        private int maxQueuePerKey = 50;
+        private Duration maxWait = Duration.ofSeconds(2);
+        private Duration retryAfter = Duration.ofSeconds(1);
+    }
+
+    private static class Rejected extends RuntimeException {
+        private Rejected(String reason) {
+            super(reason, null, false, false);
+        }
+    }
+}
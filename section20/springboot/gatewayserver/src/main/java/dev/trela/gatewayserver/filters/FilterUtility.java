@@ -1,15 +1,26 @@
 package dev.trela.gatewayserver.filters;
 
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.server.reactive.ServerHttpRequest;
 import org.springframework.stereotype.Component;
 import org.springframework.web.server.ServerWebExchange;
 
+import java.net.URI;
+import java.time.Duration;
 import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 @Component
 public class FilterUtility {
 
     public static final String CORRELATION_ID = "trelabank-correlation-id";
+    public static final String DEADLINE = "trelabank-deadline-ms";
+    // System.nanoTime() at which the request's budget runs out, set by DeadlineFilter
+    public static final String DEADLINE_ATTR = FilterUtility.class.getName() + ".deadline";
 
     public String getCorrelationId(HttpHeaders requestHeaders){
         if(requestHeaders.get(CORRELATION_ID) != null){
@@ -28,4 +39,42 @@ public class FilterUtility {
         return this.setRequestHeader(exchange, CORRELATION_ID, correlationId);
     }
 
+    // key identifying "the same request" for one caller: method, original path, query and auth scope
+    public String getRequestKey(ServerWebExchange exchange){
+        ServerHttpRequest request = exchange.getRequest();
+        URI uri = getOriginalRequestUri(exchange);
+        HttpHeaders headers = request.getHeaders();
+        return request.getMethod().name() + " " + uri.getRawPath()
+                + "?" + Objects.toString(uri.getRawQuery(), "")
+                + "|" + Objects.toString(headers.getFirst(HttpHeaders.AUTHORIZATION), "")
+                + "|" + Objects.toString(headers.getFirst("user"), "");
+    }
+
+    // the uri the client actually called, before any rewritePath / forward
+    public URI getOriginalRequestUri(ServerWebExchange exchange){
+        Set<URI> originalUris = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ORIGINAL_REQUEST_URL_ATTR);
+        if(originalUris != null && !originalUris.isEmpty()){
+            return originalUris.iterator().next();
+        }
+        return exchange.getRequest().getURI();
+    }
+
+    public void setDeadline(ServerWebExchange exchange, long budgetMillis){
+        exchange.getAttributes().put(DEADLINE_ATTR, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(budgetMillis));
+    }
+
+    // what is left of the request's budget right now, null when no deadline was set
+    public Duration getRemainingDeadline(ServerWebExchange exchange){
+        Long expiresAtNanos = exchange.getAttribute(DEADLINE_ATTR);
+        if(expiresAtNanos == null){
+            return null;
+        }
+        return Duration.ofNanos(Math.max(0, expiresAtNanos - System.nanoTime()));
+    }
+
+    public String getRouteId(ServerWebExchange exchange){
+        Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+        return route != null ? route.getId() : "unknown";
+    }
+
 }
@@ -0,0 +1,271 @@
+package dev.trela.gatewayserver.filters;
+
+import dev.trela.gatewayserver.hedging.LatencyWindow;
+import dev.trela.gatewayserver.upstream.PerRouteNettyRoutingFilter;
+import dev.trela.traffic.budget.RequestBudget;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.netty.handler.codec.http.DefaultHttpHeaders;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.CompletionContext;
+import org.springframework.cloud.client.loadbalancer.DefaultRequest;
+import org.springframework.cloud.client.loadbalancer.DefaultResponse;
+import org.springframework.cloud.client.loadbalancer.LoadBalancerLifecycle;
+import org.springframework.cloud.client.loadbalancer.LoadBalancerLifecycleValidator;
+import org.springframework.cloud.client.loadbalancer.LoadBalancerUriTools;
+import org.springframework.cloud.client.loadbalancer.RequestData;
+import org.springframework.cloud.client.loadbalancer.RequestDataContext;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.client.loadbalancer.ResponseData;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.filter.headers.HttpHeadersFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.support.LoadBalancerClientFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.StringUtils;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.netty.Connection;
+import reactor.netty.http.client.HttpClientResponse;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Hedged GETs for lb:// routes: if the first instance has not answered within the configured
+// percentile of recent latency, the same request goes to a different instance and the first
+// response wins (the loser is cancelled). Hedges are capped by a budget relative to traffic.
+// Both calls use the route's pool and the load balancer lifecycle. The winner is handed back
+// like NettyRoutingFilter does it (body written later by NettyWriteResponseFilter), so it is
+// still uncommitted when the retry filter in front of this one looks at it.
+// The filter talks to upstream itself, so it has to be the last filter of the route.
+@Component
+@Slf4j
+public class HedgingGatewayFilterFactory extends AbstractGatewayFilterFactory<HedgingGatewayFilterFactory.Config> {
+
+    private final MeterRegistry meterRegistry;
+    private final LoadBalancerClientFactory loadBalancerClientFactory;
+    private final ObjectProvider<List<HttpHeadersFilter>> headersFilters;
+    private final PerRouteNettyRoutingFilter routingFilter;
+    private final Map<String, LatencyWindow> latencies = new ConcurrentHashMap<>();
+    private final Map<String, RequestBudget> budgets = new ConcurrentHashMap<>();
+
+    public HedgingGatewayFilterFactory(MeterRegistry meterRegistry,
+                                       LoadBalancerClientFactory loadBalancerClientFactory,
+                                       ObjectProvider<List<HttpHeadersFilter>> headersFilters,
+                                       PerRouteNettyRoutingFilter routingFilter) {
+        super(Config.class);
+        this.meterRegistry = meterRegistry;
+        this.loadBalancerClientFactory = loadBalancerClientFactory;
+        this.headersFilters = headersFilters;
+        this.routingFilter = routingFilter;
+    }
+
+    @Override
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    public GatewayFilter apply(Config config) {
+        return (exchange, chain) -> {
+            Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+            if (route == null || !"lb".equals(route.getUri().getScheme())
+                    || !HttpMethod.GET.equals(exchange.getRequest().getMethod())) {
+                return chain.filter(exchange);
+            }
+            String routeId = route.getId();
+            String serviceId = route.getUri().getHost();
+            LatencyWindow window = latencies.computeIfAbsent(routeId,
+                    id -> new LatencyWindow(config.getWindowSize(), config.getPercentile()));
+            // starts empty: a route has to see traffic before it may hedge
+            RequestBudget budget = budgets.computeIfAbsent(routeId,
+                    id -> new RequestBudget(config.getBudgetPercent() / 100.0, config.getMaxBudgetTokens(), 0));
+            budget.deposit();
+
+            Set<LoadBalancerLifecycle> lifecycles = LoadBalancerLifecycleValidator.getSupportedLifecycleProcessors(
+                    loadBalancerClientFactory.getInstances(serviceId, LoadBalancerLifecycle.class),
+                    RequestDataContext.class, ResponseData.class, ServiceInstance.class);
+            DefaultRequest<RequestDataContext> lbRequest = new DefaultRequest<>(new RequestDataContext(
+                    new RequestData(exchange.getRequest(), exchange.getAttributes()), "default"));
+            lifecycles.forEach(lifecycle -> lifecycle.onStart(lbRequest));
+
+            Hedge hedge = new Hedge(exchange, route, lbRequest, lifecycles, window);
+            return choosePrimary(serviceId, lbRequest)
+                    .flatMap(primary -> {
+                        Mono<UpstreamResponse> first = hedge.call(primary, "primary")
+                                .doOnError(hedge::primaryFailed);
+                        // dropped as soon as the primary fails before it was sent, the primary's error is the answer then
+                        Mono<UpstreamResponse> second = Mono.delay(hedgeDelay(window, config))
+                                .takeUntilOther(hedge.primaryFailure.asMono())
+                                .filter(tick -> budget.tryWithdraw())
+                                .flatMap(tick -> chooseOther(serviceId, primary))
+                                .flatMap(other -> {
+                                    log.debug("Hedging {} on route {} to instance {}", exchange.getRequest().getURI(), routeId, other.getInstanceId());
+                                    meterRegistry.counter("gateway.hedging.hedges", "route", routeId).increment();
+                                    return hedge.call(other, "hedge");
+                                });
+                        return Mono.firstWithValue(first, second)
+                                .onErrorMap(error -> hedge.primaryError.get() != null ? hedge.primaryError.get() : error);
+                    })
+                    .flatMap(response -> Mono.<Void>fromRunnable(() -> handBack(exchange, response)))
+                    .switchIfEmpty(Mono.defer(() -> ServerWebExchangeUtils.isAlreadyRouted(exchange)
+                            ? Mono.empty() : chain.filter(exchange)));
+        };
+    }
+
+    private Duration hedgeDelay(LatencyWindow window, Config config) {
+        long percentileNanos = window.percentileNanos();
+        if (percentileNanos < 0) {
+            // not enough history yet - only hedge requests that are clearly stuck
+            return config.getMaxDelay();
+        }
+        Duration delay = Duration.ofNanos(percentileNanos);
+        if (delay.compareTo(config.getMinDelay()) < 0) {
+            return config.getMinDelay();
+        }
+        return delay.compareTo(config.getMaxDelay()) > 0 ? config.getMaxDelay() : delay;
+    }
+
+    private Mono<ServiceInstance> choosePrimary(String serviceId, DefaultRequest<RequestDataContext> lbRequest) {
+        return Mono.from(loadBalancerClientFactory.getInstance(serviceId).choose(lbRequest))
+                .filter(response -> response.hasServer())
+                .map(response -> response.getServer());
+    }
+
+    private Mono<ServiceInstance> chooseOther(String serviceId, ServiceInstance primary) {
+        ServiceInstanceListSupplier supplier = loadBalancerClientFactory.getInstance(serviceId, ServiceInstanceListSupplier.class);
+        if (supplier == null) {
+            return Mono.empty();
+        }
+        return supplier.get().next()
+                .mapNotNull(instances -> {
+                    List<ServiceInstance> others = instances.stream()
+                            .filter(instance -> !(instance.getHost().equals(primary.getHost()) && instance.getPort() == primary.getPort()))
+                            .toList();
+                    return others.isEmpty() ? null : others.get(ThreadLocalRandom.current().nextInt(others.size()));
+                });
+    }
+
+    // what NettyRoutingFilter puts on the exchange once the response headers are in
+    private void handBack(ServerWebExchange exchange, UpstreamResponse upstream) {
+        HttpClientResponse clientResponse = upstream.response();
+        exchange.getAttributes().put(ServerWebExchangeUtils.CLIENT_RESPONSE_ATTR, clientResponse);
+        exchange.getAttributes().put(ServerWebExchangeUtils.CLIENT_RESPONSE_CONN_ATTR, upstream.connection());
+        exchange.getAttributes().put(ServerWebExchangeUtils.GATEWAY_LOADBALANCER_RESPONSE_ATTR, upstream.lbResponse());
+
+        HttpHeaders headers = new HttpHeaders();
+        clientResponse.responseHeaders().forEach(entry -> headers.add(entry.getKey(), entry.getValue()));
+        String contentType = headers.getFirst(HttpHeaders.CONTENT_TYPE);
+        if (StringUtils.hasLength(contentType)) {
+            exchange.getAttributes().put(ServerWebExchangeUtils.ORIGINAL_RESPONSE_CONTENT_TYPE_ATTR, contentType);
+        }
+        HttpHeaders filtered = HttpHeadersFilter.filter(headersFilters.getIfAvailable(), headers, exchange,
+                HttpHeadersFilter.Type.RESPONSE);
+        exchange.getAttributes().put(ServerWebExchangeUtils.CLIENT_RESPONSE_HEADER_NAMES, filtered.keySet());
+
+        ServerHttpResponse response = exchange.getResponse();
+        response.setStatusCode(HttpStatusCode.valueOf(clientResponse.status().code()));
+        response.getHeaders().addAll(filtered);
+        ServerWebExchangeUtils.setAlreadyRouted(exchange);
+    }
+
+    // state shared by the primary and the hedge of one request
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    private class Hedge {
+
+        private final ServerWebExchange exchange;
+        private final Route route;
+        private final DefaultRequest<RequestDataContext> lbRequest;
+        private final Set<LoadBalancerLifecycle> lifecycles;
+        private final LatencyWindow window;
+        private final AtomicBoolean decided = new AtomicBoolean();
+        private final AtomicReference<Throwable> primaryError = new AtomicReference<>();
+        private final Sinks.One<Boolean> primaryFailure = Sinks.one();
+
+        Hedge(ServerWebExchange exchange, Route route, DefaultRequest<RequestDataContext> lbRequest,
+              Set<LoadBalancerLifecycle> lifecycles, LatencyWindow window) {
+            this.exchange = exchange;
+            this.route = route;
+            this.lbRequest = lbRequest;
+            this.lifecycles = lifecycles;
+            this.window = window;
+        }
+
+        void primaryFailed(Throwable error) {
+            primaryError.set(error);
+            primaryFailure.tryEmitValue(true);
+        }
+
+        Mono<UpstreamResponse> call(ServiceInstance instance, String attempt) {
+            String routeId = route.getId();
+            return Mono.defer(() -> {
+                Response<ServiceInstance> lbResponse = new DefaultResponse(instance);
+                lifecycles.forEach(lifecycle -> lifecycle.onStartRequest(lbRequest, lbResponse));
+                // filtered per call, so each attempt forwards the deadline that is left at that point
+                DefaultHttpHeaders headers = new DefaultHttpHeaders();
+                HttpHeadersFilter.filterRequest(headersFilters.getIfAvailable(), exchange).forEach(headers::set);
+                headers.remove(HttpHeaders.HOST);
+                String uri = LoadBalancerUriTools.reconstructURI(instance, exchange.getRequest().getURI()).toASCIIString();
+                long start = System.nanoTime();
+                return routingFilter.getHttpClient(route, exchange)
+                        .headers(h -> h.add(headers))
+                        .request(io.netty.handler.codec.http.HttpMethod.GET)
+                        .uri(uri)
+                        .responseConnection((response, connection) -> {
+                            window.record(System.nanoTime() - start);
+                            if (!decided.compareAndSet(false, true)) {
+                                // the other attempt already won
+                                connection.dispose();
+                                return Mono.<UpstreamResponse>empty();
+                            }
+                            return Mono.just(new UpstreamResponse(response, connection, lbResponse));
+                        })
+                        .next()
+                        .doOnNext(response -> {
+                            meterRegistry.counter("gateway.hedging.wins", "route", routeId, "attempt", attempt).increment();
+                            complete(new CompletionContext<>(CompletionContext.Status.SUCCESS, lbRequest, lbResponse,
+                                    new ResponseData(HttpStatusCode.valueOf(response.response().status().code()),
+                                            new HttpHeaders(), new LinkedMultiValueMap<>(), lbRequest.getContext().getClientRequest())));
+                        })
+                        .doOnError(error -> complete(new CompletionContext<>(CompletionContext.Status.FAILED, error, lbRequest, lbResponse)))
+                        .doOnCancel(() -> {
+                            meterRegistry.counter("gateway.hedging.cancelled", "route", routeId, "attempt", attempt).increment();
+                            complete(new CompletionContext<>(CompletionContext.Status.FAILED,
+                                    new CancellationException("Lost to the other attempt"), lbRequest, lbResponse));
+                        });
+            });
+        }
+
+        private void complete(CompletionContext context) {
+            lifecycles.forEach(lifecycle -> lifecycle.onComplete(context));
+        }
+    }
+
+    @Data
+    public static class Config {
+        private double percentile = 0.95;
+        private Duration minDelay = Duration.ofMillis(20);
+        private Duration maxDelay = Duration.ofSeconds(2);
+        // hedges allowed as a percentage of regular requests
+        private double budgetPercent = 10;
+        private double maxBudgetTokens = 20;
+        private int windowSize = 512;
+    }
+
+    private record UpstreamResponse(HttpClientResponse response, Connection connection, Response<ServiceInstance> lbResponse) {
+    }
+}
@@ -0,0 +1,98 @@
+package dev.trela.gatewayserver.filters;
+
+import dev.trela.gatewayserver.fallback.LastKnownGoodStore;
+import lombok.Data;
+import org.reactivestreams.Publisher;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.NettyWriteResponseFilter;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Tees successful GET responses into the LastKnownGoodStore for the stale-if-error fallback.
+// The body streams through unchanged, a copy is taken per buffer and stored once complete.
+@Component
+public class LastKnownGoodGatewayFilterFactory
+        extends AbstractGatewayFilterFactory<LastKnownGoodGatewayFilterFactory.Config> {
+
+    private final FilterUtility filterUtility;
+    private final LastKnownGoodStore store;
+
+    public LastKnownGoodGatewayFilterFactory(FilterUtility filterUtility, LastKnownGoodStore store) {
+        super(Config.class);
+        this.filterUtility = filterUtility;
+        this.store = store;
+    }
+
+    // ordered before NettyWriteResponseFilter, otherwise it writes the body to the undecorated response
+    @Override
+    public GatewayFilter apply(Config config) {
+        return new OrderedGatewayFilter((exchange, chain) -> {
+            if (!HttpMethod.GET.equals(exchange.getRequest().getMethod())) {
+                return chain.filter(exchange);
+            }
+            String key = filterUtility.getRequestKey(exchange);
+            ServerHttpResponseDecorator recordingResponse = new ServerHttpResponseDecorator(exchange.getResponse()) {
+                @Override
+                public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+                    HttpStatusCode status = getStatusCode();
+                    if (status == null || !status.is2xxSuccessful() || isFallback(exchange)) {
+                        return super.writeWith(body);
+                    }
+                    ByteArrayOutputStream copy = new ByteArrayOutputStream();
+                    AtomicBoolean tooLarge = new AtomicBoolean();
+                    Flux<? extends DataBuffer> teed = Flux.from(body)
+                            .doOnNext(buffer -> {
+                                if (tooLarge.get()) {
+                                    return;
+                                }
+                                if (copy.size() + buffer.readableByteCount() > config.getMaxBodyBytes()) {
+                                    tooLarge.set(true);
+                                    return;
+                                }
+                                byte[] chunk = new byte[buffer.readableByteCount()];
+                                buffer.toByteBuffer(buffer.readPosition(), ByteBuffer.wrap(chunk), 0, chunk.length);
+                                copy.writeBytes(chunk);
+                            });
+                    return super.writeWith(teed)
+                            .doOnSuccess(done -> {
+                                if (!tooLarge.get()) {
+                                    store.putAsync(key, new LastKnownGoodStore.StoredResponse(status,
+                                            getHeaders().getContentType(), copy.toByteArray(), Instant.now()));
+                                }
+                            });
+                }
+
+                @Override
+                public Mono<Void> writeAndFlushWith(Publisher<? extends Publisher<? extends DataBuffer>> body) {
+                    return writeWith(Flux.from(body).flatMapSequential(p -> p));
+                }
+            };
+            return chain.filter(exchange.mutate().response(recordingResponse).build());
+        }, NettyWriteResponseFilter.WRITE_RESPONSE_FILTER_ORDER - 1);
+    }
+
+    // the circuit breaker fallback writes through the same response, it must not refresh the entry
+    private boolean isFallback(ServerWebExchange exchange) {
+        return exchange.getAttribute(ServerWebExchangeUtils.CIRCUITBREAKER_EXECUTION_EXCEPTION_ATTR) != null;
+    }
+
+    @Data
+    public static class Config {
+        // larger responses are passed through but not stored
+        private int maxBodyBytes = 64 * 1024;
+    }
+}
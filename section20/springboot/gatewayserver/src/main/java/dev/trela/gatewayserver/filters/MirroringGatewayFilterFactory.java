@@ -0,0 +1,135 @@
+package dev.trela.gatewayserver.filters;
+
+import dev.trela.gatewayserver.mirror.MirrorProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.client.loadbalancer.reactive.LoadBalancedExchangeFilterFunction;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.filter.headers.HttpHeadersFilter;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.net.URI;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Shadow traffic: a sample of a route's requests is copied to a second upstream (e.g. the next
+// image tag registered as ACCOUNTS-SHADOW) and the shadow's responses are thrown away. The copy
+// is fired on another scheduler and never joined, and a full in-flight semaphore skips the copy,
+// so the primary path never waits. Both sides of a mirrored request record gateway.mirror.latency
+// per status, so the two latency distributions compare like for like.
+@Component
+@Slf4j
+public class MirroringGatewayFilterFactory extends AbstractGatewayFilterFactory<MirroringGatewayFilterFactory.Config> {
+
+    public static final String SHADOW_HEADER = "trelabank-shadow";
+
+    private final FilterUtility filterUtility;
+    private final MeterRegistry meterRegistry;
+    private final MirrorProperties properties;
+    private final ObjectProvider<List<HttpHeadersFilter>> headersFilters;
+    private final WebClient webClient;
+    private final WebClient loadBalancedWebClient;
+    private final Map<String, Permits> inFlight = new ConcurrentHashMap<>();
+
+    public MirroringGatewayFilterFactory(FilterUtility filterUtility, MeterRegistry meterRegistry,
+                                         MirrorProperties properties,
+                                         ObjectProvider<List<HttpHeadersFilter>> headersFilters,
+                                         WebClient.Builder webClientBuilder,
+                                         LoadBalancedExchangeFilterFunction loadBalancerFunction) {
+        super(Config.class);
+        this.filterUtility = filterUtility;
+        this.meterRegistry = meterRegistry;
+        this.properties = properties;
+        this.headersFilters = headersFilters;
+        this.webClient = webClientBuilder.build();
+        this.loadBalancedWebClient = webClientBuilder.clone().filter(loadBalancerFunction).build();
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        return (exchange, chain) -> {
+            String routeId = filterUtility.getRouteId(exchange);
+            MirrorProperties.Target target = properties.getRoutes().get(routeId);
+            if (target == null || target.getUri() == null
+                    || !target.getMethods().contains(exchange.getRequest().getMethod())) {
+                return chain.filter(exchange);
+            }
+            if (ThreadLocalRandom.current().nextDouble() >= target.getSampleRate()
+                    || !mirror(exchange, routeId, target)) {
+                return chain.filter(exchange);
+            }
+            long start = System.nanoTime();
+            return chain.filter(exchange).doFinally(signal ->
+                    record(routeId, "primary", exchange.getResponse().getStatusCode(), start));
+        };
+    }
+
+    // false when the copy was skipped
+    private boolean mirror(ServerWebExchange exchange, String routeId, MirrorProperties.Target target) {
+        // a new max-in-flight gets a new semaphore; copies in flight release into the one they took
+        Semaphore permits = inFlight.compute(routeId, (id, current) -> current != null && current.max() == target.getMaxInFlight()
+                ? current : new Permits(target.getMaxInFlight(), new Semaphore(target.getMaxInFlight()))).semaphore();
+        if (!permits.tryAcquire()) {
+            meterRegistry.counter("gateway.mirror.skipped", "route", routeId, "reason", "inflight").increment();
+            return false;
+        }
+        HttpHeaders headers = HttpHeadersFilter.filterRequest(headersFilters.getIfAvailable(), exchange);
+        URI uri = shadowUri(exchange, target.getUri());
+        WebClient client = "lb".equals(target.getUri().getScheme()) ? loadBalancedWebClient : webClient;
+        long start = System.nanoTime();
+        client.method(exchange.getRequest().getMethod())
+                .uri(uri)
+                .headers(h -> {
+                    h.addAll(headers);
+                    h.set(SHADOW_HEADER, "true");
+                })
+                .exchangeToMono(response -> response.releaseBody().thenReturn(response.statusCode()))
+                .timeout(target.getTimeout())
+                .doOnNext(status -> record(routeId, "shadow", status, start))
+                .doOnError(e -> {
+                    log.debug("Shadow request {} on route {} failed: {}", uri, routeId, e.toString());
+                    record(routeId, "shadow", null, start);
+                })
+                .doFinally(signal -> permits.release())
+                .subscribeOn(Schedulers.parallel())
+                .subscribe(status -> { }, e -> { });
+        return true;
+    }
+
+    // same path and query as the primary after the route's prefix was stripped
+    private URI shadowUri(ServerWebExchange exchange, URI base) {
+        URI request = exchange.getRequest().getURI();
+        String scheme = "lb".equals(base.getScheme()) ? "http" : base.getScheme();
+        return UriComponentsBuilder.fromUri(base)
+                .scheme(scheme)
+                .replacePath(request.getRawPath())
+                .replaceQuery(request.getRawQuery())
+                .build(true)
+                .toUri();
+    }
+
+    private void record(String routeId, String target, HttpStatusCode status, long start) {
+        meterRegistry.timer("gateway.mirror.latency", "route", routeId, "target", target,
+                        "status", status != null ? String.valueOf(status.value()) : "error")
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    public static class Config {
+    }
+
+    private record Permits(int max, Semaphore semaphore) {
+    }
+}
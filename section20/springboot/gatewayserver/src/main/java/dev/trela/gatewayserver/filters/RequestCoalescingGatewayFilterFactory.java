@@ -0,0 +1,129 @@
+package dev.trela.gatewayserver.filters;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import lombok.extern.slf4j.Slf4j;
+import org.reactivestreams.Publisher;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.NettyWriteResponseFilter;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Single-flight for GETs: concurrent identical requests share one upstream exchange.
+// Nothing is kept once the leader finishes, so there is no TTL to tune.
+@Component
+@Slf4j
+public class RequestCoalescingGatewayFilterFactory
+        extends AbstractGatewayFilterFactory<RequestCoalescingGatewayFilterFactory.Config> {
+
+    private final FilterUtility filterUtility;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Mono<CoalescedResponse>> inFlight = new ConcurrentHashMap<>();
+
+    public RequestCoalescingGatewayFilterFactory(FilterUtility filterUtility, MeterRegistry meterRegistry) {
+        super(Config.class);
+        this.filterUtility = filterUtility;
+        this.meterRegistry = meterRegistry;
+        meterRegistry.gaugeMapSize("gateway.coalescing.inflight.keys", Tags.empty(), inFlight);
+    }
+
+    // ordered before NettyWriteResponseFilter, otherwise it writes the body to the undecorated response,
+    // and after the trace and deadline global filters (-5..-3), which followers must pass through too
+    @Override
+    public GatewayFilter apply(Config config) {
+        return new OrderedGatewayFilter((exchange, chain) -> {
+            if (!HttpMethod.GET.equals(exchange.getRequest().getMethod())) {
+                return chain.filter(exchange);
+            }
+            String routeId = filterUtility.getRouteId(exchange);
+            String key = filterUtility.getRequestKey(exchange);
+
+            Sinks.One<CoalescedResponse> sink = Sinks.one();
+            Mono<CoalescedResponse> shared = sink.asMono();
+            Mono<CoalescedResponse> existing = inFlight.putIfAbsent(key, shared);
+
+            if (existing != null) {
+                requests(routeId, "collapsed").increment();
+                log.debug("Collapsed request {} onto in-flight upstream call", key);
+                // leader failed without producing a response - this caller goes upstream on its own
+                return existing.map(Optional::of)
+                        .defaultIfEmpty(Optional.empty())
+                        .onErrorReturn(Optional.empty())
+                        .flatMap(response -> response.isPresent()
+                                ? writeResponse(exchange, response.get())
+                                : chain.filter(exchange));
+            }
+
+            requests(routeId, "leader").increment();
+            ServerHttpResponseDecorator recordingResponse = new ServerHttpResponseDecorator(exchange.getResponse()) {
+                @Override
+                public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+                    return DataBufferUtils.join(Flux.from(body))
+                            .map(joined -> {
+                                byte[] bytes = new byte[joined.readableByteCount()];
+                                joined.read(bytes);
+                                DataBufferUtils.release(joined);
+                                return bytes;
+                            })
+                            .defaultIfEmpty(new byte[0])
+                            .flatMap(bytes -> {
+                                HttpHeaders headers = new HttpHeaders();
+                                headers.addAll(getHeaders());
+                                sink.tryEmitValue(new CoalescedResponse(getStatusCode(), headers, bytes));
+                                return super.writeWith(Mono.just(bufferFactory().wrap(bytes)));
+                            });
+                }
+
+                @Override
+                public Mono<Void> writeAndFlushWith(Publisher<? extends Publisher<? extends DataBuffer>> body) {
+                    return writeWith(Flux.from(body).flatMapSequential(p -> p));
+                }
+            };
+
+            return chain.filter(exchange.mutate().response(recordingResponse).build())
+                    .doOnError(sink::tryEmitError)
+                    .doFinally(signal -> {
+                        inFlight.remove(key, shared);
+                        sink.tryEmitEmpty();
+                    });
+        }, NettyWriteResponseFilter.WRITE_RESPONSE_FILTER_ORDER - 1);
+    }
+
+    private Mono<Void> writeResponse(ServerWebExchange exchange, CoalescedResponse coalesced) {
+        ServerHttpResponse response = exchange.getResponse();
+        response.setStatusCode(coalesced.status());
+        coalesced.headers().forEach((name, values) -> {
+            if (!FilterUtility.CORRELATION_ID.equalsIgnoreCase(name)) {
+                response.getHeaders().put(name, values);
+            }
+        });
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(coalesced.body())));
+    }
+
+    private Counter requests(String routeId, String role) {
+        return meterRegistry.counter("gateway.coalescing.requests", "route", routeId, "role", role);
+    }
+
+    public static class Config {
+    }
+
+    private record CoalescedResponse(HttpStatusCode status, HttpHeaders headers, byte[] body) {
+    }
+}
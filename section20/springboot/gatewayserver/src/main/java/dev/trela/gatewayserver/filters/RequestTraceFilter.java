@@ -13,7 +13,9 @@ import reactor.core.publisher.Mono;
 
 import java.util.UUID;
 
-@Order(1)
+// runs ahead of route filters ordered before NettyWriteResponseFilter (-1), e.g. request coalescing,
+// so a request answered without going upstream still carries its correlation id
+@Order(-5)
 @Component
 @Slf4j
 @RequiredArgsConstructor
@@ -3,10 +3,13 @@ package dev.trela.gatewayserver.filters;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
 import org.springframework.cloud.gateway.filter.GlobalFilter;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
 import org.springframework.http.HttpHeaders;
+import org.springframework.web.server.ServerWebExchange;
 import reactor.core.publisher.Mono;
 
 @Configuration
@@ -16,16 +19,32 @@ public class ResponseTraceFilter {
 
     private final FilterUtility filterUtility;
 
+    // set just before commit: it runs outside the response writer, and outside coalescing, whose
+    // followers never reach the rest of the chain
     @Bean
     public GlobalFilter postGlobalFilter(){
-        return (exchange,chain) ->{
-            return chain.filter(exchange).then(Mono.fromRunnable(()->{
+        return new OrderedGlobalFilter((exchange,chain) ->{
+            exchange.getResponse().beforeCommit(()-> Mono.fromRunnable(()->{
                 HttpHeaders requestHeaders = exchange.getRequest().getHeaders();
                 String correlationId = filterUtility.getCorrelationId(requestHeaders);
                 log.debug("Updated the correlation id in to the outbound headers: {}" ,correlationId);
                 exchange.getResponse().getHeaders().add(filterUtility.CORRELATION_ID, correlationId);
             }));
-        };
+            return chain.filter(exchange);
+        }, -3);
+    }
+
+    private record OrderedGlobalFilter(GlobalFilter delegate, int order) implements GlobalFilter, Ordered {
+
+        @Override
+        public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+            return delegate.filter(exchange, chain);
+        }
+
+        @Override
+        public int getOrder() {
+            return order;
+        }
     }
 
 }
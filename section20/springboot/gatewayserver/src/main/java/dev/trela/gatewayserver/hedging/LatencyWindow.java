@@ -0,0 +1,55 @@
+package dev.trela.gatewayserver.hedging;
+
+import java.util.Arrays;
+
+// Ring buffer of the most recent upstream latencies; the requested percentile is
+// recomputed every few samples instead of on every request. Callers that only need a
+// percentile now and then (canary analysis) compute it on demand instead.
+public class LatencyWindow {
+
+    private static final int RECOMPUTE_EVERY = 32;
+
+    private final long[] samples;
+    private final double percentile;
+    private int next;
+    private int count;
+    private int sinceRecompute;
+    private volatile long cachedPercentileNanos = -1;
+
+    public LatencyWindow(int size, double percentile) {
+        this.samples = new long[size];
+        this.percentile = percentile;
+    }
+
+    public synchronized void record(long nanos) {
+        samples[next] = nanos;
+        next = (next + 1) % samples.length;
+        count = Math.min(count + 1, samples.length);
+        if (++sinceRecompute >= RECOMPUTE_EVERY) {
+            sinceRecompute = 0;
+            cachedPercentileNanos = percentileNanos(percentile);
+        }
+    }
+
+    // -1 until enough samples were seen
+    public long percentileNanos() {
+        return cachedPercentileNanos;
+    }
+
+    // any percentile of the current samples, -1 without samples
+    public synchronized long percentileNanos(double percentile) {
+        if (count == 0) {
+            return -1;
+        }
+        long[] sorted = Arrays.copyOf(samples, count);
+        Arrays.sort(sorted);
+        return sorted[(int) Math.min(count - 1, Math.ceil(percentile * count) - 1)];
+    }
+
+    public synchronized void reset() {
+        next = 0;
+        count = 0;
+        sinceRecompute = 0;
+        cachedPercentileNanos = -1;
+    }
+}
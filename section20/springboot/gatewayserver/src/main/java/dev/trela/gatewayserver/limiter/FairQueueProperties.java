@@ -0,0 +1,25 @@
+package dev.trela.gatewayserver.limiter;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// Tiers for weighted fair queuing: user key (the `user` header) -> tier -> weight
+@Data
+@ConfigurationProperties(prefix = "trelabank.gateway.fair-queue")
+public class FairQueueProperties {
+
+    private Map<String, Integer> weights = new HashMap<>(Map.of("interactive", 10, "bulk", 1));
+    private Map<String, String> users = new HashMap<>();
+    private String defaultTier = "interactive";
+
+    public String tierOf(String userKey) {
+        return users.getOrDefault(userKey, defaultTier);
+    }
+
+    public int weightOf(String tier) {
+        return weights.getOrDefault(tier, 1);
+    }
+}
@@ -0,0 +1,86 @@
+package dev.trela.gatewayserver.limiter;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Gradient style adaptive limit (in the spirit of Netflix concurrency-limits Gradient2):
+// compares a short term RTT sample with a long term RTT average and shrinks the limit when
+// queueing shows up upstream, grows it by sqrt(limit) while latency stays flat.
+public class GradientConcurrencyLimit {
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double smoothing;
+    private final double rttTolerance;
+    private final double longRttAlpha;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile double estimatedLimit;
+    // guarded by this
+    private double longRttNanos;
+
+    public GradientConcurrencyLimit(int initialLimit, int minLimit, int maxLimit,
+                                    double smoothing, double rttTolerance, int longWindow) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.smoothing = smoothing;
+        this.rttTolerance = rttTolerance;
+        this.longRttAlpha = 2.0 / (longWindow + 1);
+        this.estimatedLimit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+    }
+
+    public boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= getLimit()) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    // releases the permit without feeding a sample, e.g. when the client went away
+    public void release() {
+        inFlight.decrementAndGet();
+    }
+
+    public void release(long rttNanos, boolean dropped) {
+        int inFlightAtSample = inFlight.getAndDecrement();
+        onSample(rttNanos, inFlightAtSample, dropped);
+    }
+
+    private synchronized void onSample(long rttNanos, int inFlightAtSample, boolean dropped) {
+        if (dropped) {
+            updateLimit(estimatedLimit * 0.9);
+            return;
+        }
+        if (rttNanos <= 0) {
+            return;
+        }
+        longRttNanos = longRttNanos == 0 ? rttNanos : longRttNanos * (1 - longRttAlpha) + rttNanos * longRttAlpha;
+        // recover quickly after a latency spike instead of waiting for the long window to drain
+        if (longRttNanos / rttNanos > 2) {
+            longRttNanos *= 0.95;
+        }
+        // app limited - we were not using the limit so the sample says nothing about it
+        if (inFlightAtSample < estimatedLimit / 2) {
+            return;
+        }
+        double gradient = Math.max(0.5, Math.min(1.0, rttTolerance * longRttNanos / rttNanos));
+        updateLimit(estimatedLimit * gradient + Math.sqrt(estimatedLimit));
+    }
+
+    private void updateLimit(double newLimit) {
+        double smoothed = estimatedLimit * (1 - smoothing) + newLimit * smoothing;
+        estimatedLimit = Math.max(minLimit, Math.min(maxLimit, smoothed));
+    }
+
+    public int getLimit() {
+        return (int) estimatedLimit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+}
@@ -0,0 +1,147 @@
+package dev.trela.gatewayserver.limiter;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.function.IntSupplier;
+
+// Weighted fair queuing in front of a number of upstream slots (start-time fair queuing).
+// A request that finds a free slot passes immediately. Otherwise it gets a virtual finish tag of
+// max(virtual time, previous tag of its key) + 1 / weight and waits; freed slots always go to the
+// smallest tag. A key with weight 10 is therefore served ten times as often as a key with weight 1
+// while both are backlogged, and a key that was idle starts at the current virtual time instead
+// of being punished or rewarded for its history. Per-key queue depth is bounded. The number of
+// slots is read on every admission, so it can follow an adaptive limit.
+public class WeightedFairQueue {
+
+    private final IntSupplier maxConcurrent;
+    private final int maxQueuePerKey;
+
+    // guarded by this
+    private final PriorityQueue<Ticket> waiting = new PriorityQueue<>();
+    private final Map<String, KeyState> keys = new HashMap<>();
+    private int inFlight;
+    private double virtualTime;
+    private long sequence;
+
+    public WeightedFairQueue(IntSupplier maxConcurrent, int maxQueuePerKey) {
+        this.maxConcurrent = maxConcurrent;
+        this.maxQueuePerKey = maxQueuePerKey;
+    }
+
+    // null when the key's queue is full. A ticket that got a slot right away comes back granted
+    // and onGrant is not called; otherwise onGrant runs, outside the lock, once a slot frees up.
+    public synchronized Ticket enqueue(String key, int weight, Runnable onGrant) {
+        KeyState state = keys.computeIfAbsent(key, k -> new KeyState());
+        if (inFlight < maxConcurrent.getAsInt() && waiting.isEmpty()) {
+            inFlight++;
+            Ticket ticket = new Ticket(key, 0, sequence++, onGrant);
+            ticket.granted = true;
+            cleanUp(key, state);
+            return ticket;
+        }
+        if (state.queued >= maxQueuePerKey) {
+            cleanUp(key, state);
+            return null;
+        }
+        double finishTag = Math.max(virtualTime, state.lastFinishTag) + 1.0 / Math.max(1, weight);
+        state.lastFinishTag = finishTag;
+        state.queued++;
+        Ticket ticket = new Ticket(key, finishTag, sequence++, onGrant);
+        waiting.add(ticket);
+        return ticket;
+    }
+
+    // the request is done (or never started), hand its slot to the next waiter - or to several
+    // when the number of slots grew meanwhile
+    public void release() {
+        List<Ticket> granted = new ArrayList<>(1);
+        synchronized (this) {
+            inFlight--;
+            for (Ticket next = grantNext(); next != null; next = grantNext()) {
+                granted.add(next);
+            }
+        }
+        granted.forEach(ticket -> ticket.onGrant.run());
+    }
+
+    // waiter gave up (timeout, client went away); a ticket granted meanwhile gives its slot back
+    public void cancel(Ticket ticket) {
+        boolean wasGranted;
+        synchronized (this) {
+            wasGranted = ticket.granted;
+            if (!wasGranted && waiting.remove(ticket)) {
+                KeyState state = keys.get(ticket.key);
+                state.queued--;
+                cleanUp(ticket.key, state);
+            }
+        }
+        if (wasGranted) {
+            release();
+        }
+    }
+
+    private Ticket grantNext() {
+        if (inFlight >= maxConcurrent.getAsInt()) {
+            return null;
+        }
+        Ticket next = waiting.poll();
+        if (next == null) {
+            return null;
+        }
+        virtualTime = Math.max(virtualTime, next.finishTag);
+        next.granted = true;
+        inFlight++;
+        KeyState state = keys.get(next.key);
+        state.queued--;
+        cleanUp(next.key, state);
+        return next;
+    }
+
+    // forget keys that have nothing queued and no tag ahead of the virtual clock
+    private void cleanUp(String key, KeyState state) {
+        if (state.queued == 0 && state.lastFinishTag <= virtualTime) {
+            keys.remove(key);
+        }
+    }
+
+    public synchronized int getQueued() {
+        return waiting.size();
+    }
+
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    private static final class KeyState {
+        private int queued;
+        private double lastFinishTag;
+    }
+
+    public static final class Ticket implements Comparable<Ticket> {
+        private final String key;
+        private final double finishTag;
+        private final long sequence;
+        private final Runnable onGrant;
+        private boolean granted;
+
+        private Ticket(String key, double finishTag, long sequence, Runnable onGrant) {
+            this.key = key;
+            this.finishTag = finishTag;
+            this.sequence = sequence;
+            this.onGrant = onGrant;
+        }
+
+        public boolean isGranted() {
+            return granted;
+        }
+
+        @Override
+        public int compareTo(Ticket other) {
+            int byTag = Double.compare(finishTag, other.finishTag);
+            return byTag != 0 ? byTag : Long.compare(sequence, other.sequence);
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package dev.trela.gatewayserver.mirror;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.http.HttpMethod;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Shadow upstream per route id; routes without an entry (or with sample-rate 0) are not mirrored
+@Data
+@ConfigurationProperties(prefix = "trelabank.gateway.mirror")
+public class MirrorProperties {
+
+    private Map<String, Target> routes = new HashMap<>();
+
+    @Data
+    public static class Target {
+        // lb://SERVICE-ID or http://host:port
+        private URI uri;
+        // fraction of requests copied, 0.0 - 1.0; 0 switches mirroring off for the route
+        private double sampleRate = 0.05;
+        private int maxInFlight = 50;
+        private Duration timeout = Duration.ofSeconds(5);
+        // only safe methods by default - a shadow sharing the database must not see writes
+        private List<HttpMethod> methods = List.of(HttpMethod.GET);
+    }
+}
@@ -0,0 +1,90 @@
+package dev.trela.gatewayserver.routing;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.route.RouteLocator;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.Ordered;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Routes from trelabank.gateway.routes. All prefixes are compiled into one trie, the first
+// route predicate does the lookup and caches the result on the exchange so the other routes
+// only compare ids. Called again on every RefreshRoutesEvent (e.g. /actuator/refresh or
+// /actuator/busrefresh after a config change), which recompiles the table without a restart.
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class PrefixRouteLocator implements RouteLocator {
+
+    private static final String MATCHED_ROUTE_ATTR = PrefixRouteLocator.class.getName() + ".matchedRoute";
+    private static final String NO_MATCH = "";
+
+    private final RouteTableProperties properties;
+    private final RoutePolicies routePolicies;
+    private volatile PrefixTrie<String> trie = new PrefixTrie<>();
+
+    @Override
+    public Flux<Route> getRoutes() {
+        List<RouteTableProperties.RouteEntry> entries = List.copyOf(properties.getRoutes());
+        PrefixTrie<String> compiled = new PrefixTrie<>();
+        List<Route> routes = new ArrayList<>(entries.size());
+        for (RouteTableProperties.RouteEntry entry : entries) {
+            if (!routePolicies.contains(entry.getPolicy())) {
+                log.warn("Route {} refers to unknown policy {}, routing it without filters", entry.getId(), entry.getPolicy());
+            }
+            compiled.put(entry.getPrefix(), entry.getId());
+            routes.add(toRoute(entry));
+        }
+        trie = compiled;
+        log.debug("Compiled {} prefix routes", routes.size());
+        return Flux.fromIterable(routes);
+    }
+
+    private Route toRoute(RouteTableProperties.RouteEntry entry) {
+        String id = entry.getId();
+        List<GatewayFilter> filters = new ArrayList<>();
+        filters.add(new OrderedGatewayFilter(stripPrefix(entry.getPrefix()), 0));
+        List<GatewayFilter> policyFilters = routePolicies.get(entry.getPolicy());
+        for (int i = 0; i < policyFilters.size(); i++) {
+            GatewayFilter filter = policyFilters.get(i);
+            // filters that need a specific position (e.g. before the response is written) keep it
+            filters.add(filter instanceof Ordered ? filter : new OrderedGatewayFilter(filter, i + 1));
+        }
+        return Route.async()
+                .id(id)
+                .uri(entry.getUri())
+                .predicate(exchange -> id.equals(matchedRouteId(exchange)))
+                .filters(filters)
+                .build();
+    }
+
+    private String matchedRouteId(ServerWebExchange exchange) {
+        return (String) exchange.getAttributes().computeIfAbsent(MATCHED_ROUTE_ATTR, key -> {
+            String routeId = trie.longestPrefix(exchange.getRequest().getPath().value());
+            return routeId != null ? routeId : NO_MATCH;
+        });
+    }
+
+    // one substring instead of a named-group regex per request
+    private GatewayFilter stripPrefix(String prefix) {
+        int prefixLength = prefix.endsWith("/") ? prefix.length() - 1 : prefix.length();
+        return (exchange, chain) -> {
+            ServerHttpRequest request = exchange.getRequest();
+            ServerWebExchangeUtils.addOriginalRequestUrl(exchange, request.getURI());
+            String path = request.getURI().getRawPath();
+            String stripped = path.length() > prefixLength ? path.substring(prefixLength) : "/";
+            ServerHttpRequest strippedRequest = request.mutate().path(stripped).build();
+            exchange.getAttributes().put(ServerWebExchangeUtils.GATEWAY_REQUEST_URL_ATTR, strippedRequest.getURI());
+            return chain.filter(exchange.mutate().request(strippedRequest).build());
+        };
+    }
+}
@@ -0,0 +1,70 @@
+package dev.trela.gatewayserver.routing;
+
+import java.util.Arrays;
+
+// Character trie over path prefixes. Lookups walk the path once without allocating and return
+// the value of the longest prefix that ends on a segment boundary, so "/trelabank/loans"
+// matches "/trelabank/loans/api/fetch" but not "/trelabank/loansx". Build once, then only read.
+public class PrefixTrie<T> {
+
+    private final Node<T> root = new Node<>();
+
+    public void put(String prefix, T value) {
+        String normalized = prefix.endsWith("/") ? prefix.substring(0, prefix.length() - 1) : prefix;
+        Node<T> node = root;
+        for (int i = 0; i < normalized.length(); i++) {
+            node = node.childOrCreate(normalized.charAt(i));
+        }
+        node.value = value;
+    }
+
+    public T longestPrefix(String path) {
+        T best = root.value;
+        Node<T> node = root;
+        for (int i = 0; i < path.length(); i++) {
+            node = node.child(path.charAt(i));
+            if (node == null) {
+                break;
+            }
+            if (node.value != null && (i + 1 == path.length() || path.charAt(i + 1) == '/')) {
+                best = node.value;
+            }
+        }
+        return best;
+    }
+
+    private static final class Node<T> {
+
+        // sorted labels, children[i] belongs to labels[i]
+        private char[] labels = new char[0];
+        @SuppressWarnings("unchecked")
+        private Node<T>[] children = new Node[0];
+        private T value;
+
+        private Node<T> child(char label) {
+            int index = Arrays.binarySearch(labels, label);
+            return index >= 0 ? children[index] : null;
+        }
+
+        private Node<T> childOrCreate(char label) {
+            int index = Arrays.binarySearch(labels, label);
+            if (index >= 0) {
+                return children[index];
+            }
+            int insertAt = -index - 1;
+            Node<T> created = new Node<>();
+            char[] newLabels = new char[labels.length + 1];
+            @SuppressWarnings("unchecked")
+            Node<T>[] newChildren = new Node[children.length + 1];
+            System.arraycopy(labels, 0, newLabels, 0, insertAt);
+            System.arraycopy(children, 0, newChildren, 0, insertAt);
+            newLabels[insertAt] = label;
+            newChildren[insertAt] = created;
+            System.arraycopy(labels, insertAt, newLabels, insertAt + 1, labels.length - insertAt);
+            System.arraycopy(children, insertAt, newChildren, insertAt + 1, children.length - insertAt);
+            labels = newLabels;
+            children = newChildren;
+            return created;
+        }
+    }
+}
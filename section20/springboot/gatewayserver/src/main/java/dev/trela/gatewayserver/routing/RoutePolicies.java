@@ -0,0 +1,19 @@
+package dev.trela.gatewayserver.routing;
+
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+
+import java.util.List;
+import java.util.Map;
+
+// Named per-route filter chains. The route table in configuration refers to them by name,
+// the filters themselves stay in code because most of them need beans.
+public record RoutePolicies(Map<String, List<GatewayFilter>> policies) {
+
+    public List<GatewayFilter> get(String name) {
+        return name == null ? List.of() : policies.getOrDefault(name, List.of());
+    }
+
+    public boolean contains(String name) {
+        return name == null || policies.containsKey(name);
+    }
+}
@@ -0,0 +1,26 @@
+package dev.trela.gatewayserver.routing;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+
+// Mutable on purpose: a refresh from the config server rebinds this bean in place
+@Data
+@ConfigurationProperties(prefix = "trelabank.gateway")
+public class RouteTableProperties {
+
+    private List<RouteEntry> routes = new ArrayList<>();
+
+    @Data
+    public static class RouteEntry {
+        private String id;
+        // stripped before forwarding, /trelabank/accounts/api/fetch -> /api/fetch
+        private String prefix;
+        private URI uri;
+        // name of the filter chain in RoutePolicies, none when empty
+        private String policy;
+    }
+}
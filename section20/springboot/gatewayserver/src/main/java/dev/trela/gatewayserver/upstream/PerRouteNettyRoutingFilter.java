@@ -0,0 +1,147 @@
+package dev.trela.gatewayserver.upstream;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.web.ServerProperties;
+import org.springframework.cloud.gateway.config.HttpClientCustomizer;
+import org.springframework.cloud.gateway.config.HttpClientFactory;
+import org.springframework.cloud.gateway.config.HttpClientProperties;
+import org.springframework.cloud.gateway.config.HttpClientSslConfigurer;
+import org.springframework.cloud.gateway.event.RefreshRoutesResultEvent;
+import org.springframework.cloud.gateway.filter.NettyRoutingFilter;
+import org.springframework.cloud.gateway.filter.headers.HttpHeadersFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.route.RouteLocator;
+import org.springframework.context.ApplicationListener;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.HttpResources;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+// NettyRoutingFilter with one connection pool per route instead of one shared pool, so a slow
+// upstream can only exhaust its own pool. Pools publish reactor.netty.connection.provider.*
+// metrics (active, idle, pending, acquire time) tagged with the pool name "upstream-<routeId>".
+// Each client is built like the gateway's own (ssl, proxy, wiretap, header sizes,
+// HttpClientCustomizers) around the route's pool. After a route refresh the clients of removed
+// routes and of routes whose pool settings changed are dropped; in-flight requests finish on the
+// old pool, which closes once they are released.
+@Slf4j
+public class PerRouteNettyRoutingFilter extends NettyRoutingFilter
+        implements ApplicationListener<RefreshRoutesResultEvent>, DisposableBean {
+
+    private final UpstreamPoolProperties poolProperties;
+    private final HttpClientProperties httpClientProperties;
+    private final ServerProperties serverProperties;
+    private final HttpClientSslConfigurer sslConfigurer;
+    private final ObjectProvider<List<HttpClientCustomizer>> customizers;
+    private final Map<String, RouteClient> clients = new ConcurrentHashMap<>();
+
+    public PerRouteNettyRoutingFilter(HttpClient httpClient, ObjectProvider<List<HttpHeadersFilter>> headersFiltersProvider,
+                                      HttpClientProperties httpClientProperties, ServerProperties serverProperties,
+                                      HttpClientSslConfigurer sslConfigurer, ObjectProvider<List<HttpClientCustomizer>> customizers,
+                                      UpstreamPoolProperties poolProperties) {
+        super(httpClient, headersFiltersProvider, httpClientProperties);
+        this.httpClientProperties = httpClientProperties;
+        this.serverProperties = serverProperties;
+        this.sslConfigurer = sslConfigurer;
+        this.customizers = customizers;
+        this.poolProperties = poolProperties;
+    }
+
+    // public so that filters calling the route's upstream themselves (hedging) share its pool
+    @Override
+    public HttpClient getHttpClient(Route route, ServerWebExchange exchange) {
+        return clients.computeIfAbsent(route.getId(), this::createClient).httpClient();
+    }
+
+    @Override
+    public void onApplicationEvent(RefreshRoutesResultEvent event) {
+        if (!event.isSuccess() || !(event.getSource() instanceof RouteLocator routeLocator)) {
+            return;
+        }
+        routeLocator.getRoutes().map(Route::getId).collect(Collectors.toSet()).subscribe(this::evictStale);
+    }
+
+    private void evictStale(Set<String> routeIds) {
+        for (Map.Entry<String, RouteClient> entry : clients.entrySet()) {
+            String routeId = entry.getKey();
+            RouteClient client = entry.getValue();
+            if (routeIds.contains(routeId) && client.pool().equals(poolProperties.forRoute(routeId))) {
+                continue;
+            }
+            if (clients.remove(routeId, client)) {
+                log.debug("Dropping upstream pool of route {}", routeId);
+                client.provider().disposeLater().subscribe();
+            }
+        }
+    }
+
+    private RouteClient createClient(String routeId) {
+        // a copy, so that a rebind of the properties shows up as a difference on the next refresh
+        UpstreamPoolProperties.Pool pool = new UpstreamPoolProperties.Pool();
+        BeanUtils.copyProperties(poolProperties.forRoute(routeId), pool);
+        ConnectionProvider provider = ConnectionProvider.builder("upstream-" + routeId)
+                .maxConnections(pool.getMaxConnections())
+                .pendingAcquireMaxCount(pool.getPendingAcquireMaxCount())
+                .pendingAcquireTimeout(pool.getPendingAcquireTimeout())
+                .maxIdleTime(pool.getMaxIdleTime())
+                .maxLifeTime(pool.getMaxLifeTime())
+                .evictInBackground(pool.getEvictionInterval())
+                .metrics(true)
+                .build();
+        log.debug("Created upstream pool for route {}: {}", routeId, pool);
+
+        HttpClient client = new RouteHttpClientFactory(provider).build()
+                .runOn(HttpResources.get(), poolProperties.isNativeTransport());
+        if (pool.isH2c()) {
+            client = client.protocol(HttpProtocol.H2C, HttpProtocol.HTTP11);
+        }
+        return new RouteClient(pool, provider, client);
+    }
+
+    @Override
+    public void destroy() {
+        clients.values().forEach(client -> client.provider().dispose());
+    }
+
+    private record RouteClient(UpstreamPoolProperties.Pool pool, ConnectionProvider provider, HttpClient httpClient) {
+    }
+
+    // the gateway's HttpClientFactory with the route's pool in place of the shared one; reactor
+    // netty cannot swap the pool of an existing HttpClient
+    private class RouteHttpClientFactory extends HttpClientFactory {
+
+        private final ConnectionProvider provider;
+
+        RouteHttpClientFactory(ConnectionProvider provider) {
+            // the outer fields, HttpClientFactory has protected fields of the same names
+            super(PerRouteNettyRoutingFilter.this.httpClientProperties, PerRouteNettyRoutingFilter.this.serverProperties,
+                    PerRouteNettyRoutingFilter.this.sslConfigurer,
+                    new ArrayList<>(PerRouteNettyRoutingFilter.this.customizers.getIfAvailable(List::of)));
+            this.provider = provider;
+        }
+
+        @Override
+        protected ConnectionProvider buildConnectionProvider(HttpClientProperties properties) {
+            return provider;
+        }
+
+        HttpClient build() {
+            try {
+                return createInstance();
+            } catch (Exception e) {
+                throw new IllegalStateException("Could not create the upstream HttpClient", e);
+            }
+        }
+    }
+}
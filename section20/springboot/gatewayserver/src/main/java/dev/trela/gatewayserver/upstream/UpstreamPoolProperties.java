@@ -0,0 +1,35 @@
+package dev.trela.gatewayserver.upstream;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+// Connection pool and transport per route id; routes not listed get `defaults`
+@Data
+@ConfigurationProperties(prefix = "trelabank.gateway.upstream")
+public class UpstreamPoolProperties {
+
+    // epoll when netty-transport-native-epoll is available, NIO otherwise
+    private boolean nativeTransport = true;
+    private Pool defaults = new Pool();
+    private Map<String, Pool> routes = new HashMap<>();
+
+    public Pool forRoute(String routeId) {
+        return routes.getOrDefault(routeId, defaults);
+    }
+
+    @Data
+    public static class Pool {
+        private int maxConnections = 100;
+        private int pendingAcquireMaxCount = 200;
+        private Duration pendingAcquireTimeout = Duration.ofSeconds(2);
+        private Duration maxIdleTime = Duration.ofSeconds(30);
+        private Duration maxLifeTime = Duration.ofMinutes(5);
+        private Duration evictionInterval = Duration.ofSeconds(30);
+        // HTTP/2 cleartext with HTTP/1.1 fallback, only for upstreams that support h2c
+        private boolean h2c = false;
+    }
+}
@@ -0,0 +1,129 @@
+package dev.trela.gatewayserver.filters;
+
+import dev.trela.gatewayserver.upstream.PerRouteNettyRoutingFilter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.DefaultResponse;
+import org.springframework.cloud.client.loadbalancer.reactive.ReactiveLoadBalancer;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.headers.HttpHeadersFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.cloud.loadbalancer.support.LoadBalancerClientFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.netty.Connection;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.http.server.HttpServer;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+// the loans route: budgeted retry in front of hedging, which calls upstream itself
+class BudgetedRetryGatewayFilterFactoryTest {
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private final AtomicInteger upstreamCalls = new AtomicInteger();
+	private final ConcurrentLinkedQueue<ServiceInstance> chosen = new ConcurrentLinkedQueue<>();
+	private DisposableServer upstream;
+	private GatewayFilter retry;
+	private GatewayFilter hedging;
+
+	@BeforeEach
+	@SuppressWarnings("unchecked")
+	void setUp() {
+		// 503 on the first call, 200 afterwards
+		upstream = HttpServer.create().port(0)
+				.route(routes -> routes.get("/api/fetch", (request, response) -> upstreamCalls.getAndIncrement() == 0
+						? response.status(HttpStatus.SERVICE_UNAVAILABLE.value()).send()
+						: response.sendString(Mono.just("{}"))))
+				.bindNow();
+
+		LoadBalancerClientFactory loadBalancerClientFactory = mock(LoadBalancerClientFactory.class);
+		ReactiveLoadBalancer<ServiceInstance> loadBalancer =
+				request -> Mono.just(new DefaultResponse(chosen.size() > 1 ? chosen.poll() : chosen.peek()));
+		when(loadBalancerClientFactory.getInstance("LOANS")).thenReturn(loadBalancer);
+		PerRouteNettyRoutingFilter routingFilter = mock(PerRouteNettyRoutingFilter.class);
+		when(routingFilter.getHttpClient(any(), any())).thenReturn(HttpClient.create());
+		ObjectProvider<List<HttpHeadersFilter>> headersFilters = mock(ObjectProvider.class);
+		when(headersFilters.getIfAvailable()).thenReturn(List.of());
+
+		BudgetedRetryGatewayFilterFactory.Config retryConfig = new BudgetedRetryGatewayFilterFactory.Config();
+		retryConfig.setFirstBackoff(Duration.ofMillis(10));
+		retry = new BudgetedRetryGatewayFilterFactory(new FilterUtility(), meterRegistry).apply(retryConfig);
+		hedging = new HedgingGatewayFilterFactory(meterRegistry, loadBalancerClientFactory, headersFilters, routingFilter)
+				.apply(new HedgingGatewayFilterFactory.Config());
+	}
+
+	@AfterEach
+	void tearDown() {
+		upstream.disposeNow();
+	}
+
+	@Test
+	void retriesAn5xxThatHedgingHandedBack() {
+		chosen.add(instance(upstream.port()));
+
+		MockServerWebExchange exchange = exchange();
+		route(exchange);
+
+		assertThat(exchange.getResponse().getStatusCode()).isEqualTo(HttpStatus.OK);
+		assertThat(exchange.getResponse().isCommitted()).isFalse();
+		assertThat(upstreamCalls).hasValue(2);
+		assertThat(meterRegistry.counter("gateway.retry.attempts", "route", "loans-route", "upstream", "LOANS").count())
+				.isEqualTo(1);
+	}
+
+	@Test
+	void retriesAConnectFailureOnAnotherInstance() {
+		DisposableServer closed = HttpServer.create().port(0).bindNow();
+		int deadPort = closed.port();
+		closed.disposeNow();
+		upstreamCalls.set(1);
+		chosen.add(instance(deadPort));
+		chosen.add(instance(upstream.port()));
+
+		MockServerWebExchange exchange = exchange();
+		route(exchange);
+
+		assertThat(exchange.getResponse().getStatusCode()).isEqualTo(HttpStatus.OK);
+		assertThat(upstreamCalls).hasValue(2);
+		assertThat(meterRegistry.counter("gateway.retry.attempts", "route", "loans-route", "upstream", "LOANS").count())
+				.isEqualTo(1);
+	}
+
+	private void route(MockServerWebExchange exchange) {
+		retry.filter(exchange, retried -> hedging.filter(retried, routed -> Mono.empty()))
+				.block(Duration.ofSeconds(5));
+		Connection connection = exchange.getAttribute(ServerWebExchangeUtils.CLIENT_RESPONSE_CONN_ATTR);
+		assertThat(connection).isNotNull();
+		connection.dispose();
+	}
+
+	private static MockServerWebExchange exchange() {
+		MockServerWebExchange exchange = MockServerWebExchange.from(
+				MockServerHttpRequest.get("http://gateway/api/fetch?mobileNumber=4354437687"));
+		exchange.getAttributes().put(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR, Route.async()
+				.id("loans-route").uri("lb://LOANS").predicate(e -> true).build());
+		return exchange;
+	}
+
+	private static ServiceInstance instance(int port) {
+		return new DefaultServiceInstance("loans-" + port, "LOANS", "localhost", port, false);
+	}
+}
@@ -0,0 +1,99 @@
+package dev.trela.gatewayserver.routing;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.http.server.PathContainer;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Routing cost per request: the old Path=/prefix/** predicates (a PathPattern per route, matched
+// against the path parsed once per request, as PathRoutePredicateFactory does) + rewritePath
+// regex against the trie lookup + substring, with the 3 real routes and with 300. A plain
+// startsWith scan is kept as the cheapest possible linear baseline. Requests hit the last
+// route, the worst case for the linear scans. Run with main() from the IDE or
+// mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=dev.trela.gatewayserver.routing.PrefixRouterBenchmark
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PrefixRouterBenchmark {
+
+    @Param({"3", "300"})
+    private int routeCount;
+
+    private final List<String> prefixes = new ArrayList<>();
+    private final List<String> prefixesWithSlash = new ArrayList<>();
+    private final List<PathPattern> pathPatterns = new ArrayList<>();
+    private final List<Pattern> rewritePatterns = new ArrayList<>();
+    private final PrefixTrie<Integer> trie = new PrefixTrie<>();
+    private String path;
+
+    @Setup
+    public void setUp() {
+        for (int i = 0; i < routeCount; i++) {
+            String prefix = i < 3 ? "/trelabank/" + List.of("accounts", "loans", "cards").get(i) : "/trelabank/service" + i;
+            prefixes.add(prefix);
+            prefixesWithSlash.add(prefix + "/");
+            pathPatterns.add(PathPatternParser.defaultInstance.parse(prefix + "/**"));
+            rewritePatterns.add(Pattern.compile(prefix + "/(?<segment>.*)"));
+            trie.put(prefix, prefix.length());
+        }
+        path = prefixes.get(routeCount - 1) + "/api/fetch";
+    }
+
+    @Benchmark
+    public String pathPatternRewrite() {
+        PathContainer pathContainer = PathContainer.parsePath(path);
+        for (int i = 0; i < pathPatterns.size(); i++) {
+            if (pathPatterns.get(i).matches(pathContainer)) {
+                Matcher matcher = rewritePatterns.get(i).matcher(path);
+                return matcher.replaceAll("/${segment}");
+            }
+        }
+        return null;
+    }
+
+    @Benchmark
+    public String prefixScanRewrite() {
+        for (int i = 0; i < prefixesWithSlash.size(); i++) {
+            if (path.startsWith(prefixesWithSlash.get(i))) {
+                Matcher matcher = rewritePatterns.get(i).matcher(path);
+                return matcher.replaceAll("/${segment}");
+            }
+        }
+        return null;
+    }
+
+    @Benchmark
+    public String trieStripPrefix() {
+        Integer prefixLength = trie.longestPrefix(path);
+        if (prefixLength == null) {
+            return null;
+        }
+        return path.length() > prefixLength ? path.substring(prefixLength) : "/";
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(PrefixRouterBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,51 @@
+package dev.trela.gatewayserver.routing;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PrefixTrieTest {
+
+	private final PrefixTrie<String> trie = new PrefixTrie<>();
+
+	@Test
+	void matchesPrefixOnlyAtSegmentBoundary() {
+		trie.put("/accounts", "accounts");
+
+		assertThat(trie.longestPrefix("/accounts")).isEqualTo("accounts");
+		assertThat(trie.longestPrefix("/accounts/")).isEqualTo("accounts");
+		assertThat(trie.longestPrefix("/accounts/api/fetch")).isEqualTo("accounts");
+		assertThat(trie.longestPrefix("/accountsX")).isNull();
+		assertThat(trie.longestPrefix("/accountsX/api/fetch")).isNull();
+		assertThat(trie.longestPrefix("/account")).isNull();
+	}
+
+	@Test
+	void prefersLongestMatchingPrefix() {
+		trie.put("/trelabank", "root");
+		trie.put("/trelabank/loans", "loans");
+
+		assertThat(trie.longestPrefix("/trelabank/loans/api/fetch")).isEqualTo("loans");
+		assertThat(trie.longestPrefix("/trelabank/loansX/api/fetch")).isEqualTo("root");
+		assertThat(trie.longestPrefix("/trelabank/cards/api/fetch")).isEqualTo("root");
+		assertThat(trie.longestPrefix("/trelabankX")).isNull();
+	}
+
+	@Test
+	void ignoresTrailingSlashOfPrefix() {
+		trie.put("/trelabank/cards/", "cards");
+
+		assertThat(trie.longestPrefix("/trelabank/cards/api/fetch")).isEqualTo("cards");
+		assertThat(trie.longestPrefix("/trelabank/cardsX")).isNull();
+	}
+
+	@Test
+	void keepsSiblingPrefixesApart() {
+		trie.put("/trelabank/accounts", "accounts");
+		trie.put("/trelabank/accountsv2", "accountsv2");
+
+		assertThat(trie.longestPrefix("/trelabank/accounts/api")).isEqualTo("accounts");
+		assertThat(trie.longestPrefix("/trelabank/accountsv2/api")).isEqualTo("accountsv2");
+		assertThat(trie.longestPrefix("/trelabank/accountsv")).isNull();
+	}
+}
@@ -0,0 +1,12 @@
+package dev.trela.loans.dto;
+
+// Change notification for the loans-changed topic, keyed by mobile number. `loan` is the full
+// state after the change (null for DELETED), so consumers can rebuild from the topic alone.
+public record LoanEventDto(Type type, String mobileNumber, LoanDto loan, long occurredAt) {
+
+    public enum Type { CREATED, UPDATED, DELETED }
+
+    public static LoanEventDto of(Type type, String mobileNumber, LoanDto loan) {
+        return new LoanEventDto(type, mobileNumber, loan, System.currentTimeMillis());
+    }
+}
@@ -0,0 +1,32 @@
+package dev.trela.loans.events;
+
+import dev.trela.loans.dto.LoanEventDto;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cloud.stream.function.StreamBridge;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.nio.charset.StandardCharsets;
+
+// Sends after commit only, so a rolled back change is never announced. Keyed by mobile number:
+// all changes of one customer land on one partition in order, and compaction keeps the latest.
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class LoanEventPublisher {
+
+    private final StreamBridge streamBridge;
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void publish(LoanEventDto event) {
+        boolean sent = streamBridge.send("loansChanged-out-0", MessageBuilder.withPayload(event)
+                .setHeader(KafkaHeaders.KEY, event.mobileNumber().getBytes(StandardCharsets.UTF_8))
+                .build());
+        if (!sent) {
+            log.warn("Could not publish {} for loan of {}", event.type(), event.mobileNumber());
+        }
+    }
+}
@@ -2,13 +2,16 @@ package dev.trela.loans.service.impl;
 
 import dev.trela.loans.constants.LoanConstants;
 import dev.trela.loans.dto.LoanDto;
+import dev.trela.loans.dto.LoanEventDto;
 import dev.trela.loans.exception.LoanAlreadyExistsException;
 import dev.trela.loans.exception.ResourceNotFoundException;
 import dev.trela.loans.mapper.LoanMapper;
 import dev.trela.loans.model.Loan;
 import dev.trela.loans.repository.LoanRepository;
 import dev.trela.loans.service.LoanService;
+import dev.trela.common.deadline.RequestDeadlineHolder;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -21,12 +24,16 @@ import java.util.Random;
 public class LoanServiceImpl implements LoanService {
 
     private final LoanRepository loanRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Override
     public LoanDto createLoan(String mobileNumber) {
+        RequestDeadlineHolder.checkNotExpired("createLoan");
         if(loanRepository.findByMobileNumber(mobileNumber).isPresent())
             throw new LoanAlreadyExistsException("Loan already registered with given mobileNumber ",mobileNumber);
-        return LoanMapper.mapToLoanDto(loanRepository.save(createNewLoan(mobileNumber)));
+        LoanDto created = LoanMapper.mapToLoanDto(loanRepository.save(createNewLoan(mobileNumber)));
+        eventPublisher.publishEvent(LoanEventDto.of(LoanEventDto.Type.CREATED, mobileNumber, created));
+        return created;
     }
 
 
@@ -46,11 +53,13 @@ public class LoanServiceImpl implements LoanService {
 
     @Override
     public LoanDto fetchLoanDetails(String mobileNumber) {
+        RequestDeadlineHolder.checkNotExpired("fetchLoanDetails");
         return LoanMapper.mapToLoanDto(findByMobileNumber(mobileNumber));
     }
 
     @Override
     public LoanDto updateLoanDetails(LoanDto loanDto) {
+        RequestDeadlineHolder.checkNotExpired("updateLoanDetails");
         String mobileNumber = loanDto.mobileNumber();
         Loan loanToUpdate = findByMobileNumber(mobileNumber);
 
@@ -61,13 +70,17 @@ public class LoanServiceImpl implements LoanService {
         loanToUpdate.setAmountPaid(loanDto.amountPaid());
         loanToUpdate.setOutstandingAmount(loanDto.outstandingAmount());
 
-        return LoanMapper.mapToLoanDto(loanRepository.save(loanToUpdate));
+        LoanDto updated = LoanMapper.mapToLoanDto(loanRepository.save(loanToUpdate));
+        eventPublisher.publishEvent(LoanEventDto.of(LoanEventDto.Type.UPDATED, mobileNumber, updated));
+        return updated;
     }
 
     @Override
     public void deleteLoanDetails(String mobileNumber) {
+        RequestDeadlineHolder.checkNotExpired("deleteLoanDetails");
         findByMobileNumber(mobileNumber);
         loanRepository.deleteByMobileNumber(mobileNumber);
+        eventPublisher.publishEvent(LoanEventDto.of(LoanEventDto.Type.DELETED, mobileNumber, null));
     }
 
     @Override
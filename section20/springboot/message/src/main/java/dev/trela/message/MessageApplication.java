@@ -1,9 +1,16 @@
 package dev.trela.message;
 
+import dev.trela.message.dedup.DedupProperties;
+import dev.trela.message.dispatch.DispatchProperties;
+import dev.trela.message.provider.ProviderProperties;
+import dev.trela.message.retry.RetryProperties;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 
 @SpringBootApplication
+@EnableConfigurationProperties({DispatchProperties.class, DedupProperties.class, ProviderProperties.class,
+		RetryProperties.class})
 public class MessageApplication {
 
 	public static void main(String[] args) {
@@ -0,0 +1,17 @@
+package dev.trela.message.channel;
+
+import dev.trela.message.provider.ProviderRegistry;
+import org.springframework.stereotype.Component;
+
+@Component
+public class EmailChannel extends ProviderChannel {
+
+    public EmailChannel(ProviderRegistry providerRegistry) {
+        super(providerRegistry);
+    }
+
+    @Override
+    public String name() {
+        return "email";
+    }
+}
@@ -0,0 +1,30 @@
+package dev.trela.message.channel;
+
+import dev.trela.message.dto.AccountsMsgDto;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+
+public interface NotificationChannel {
+
+    String name();
+
+    void send(AccountsMsgDto accountsMsgDto);
+
+    // one provider round trip for the whole batch where the channel supports it; returns the
+    // messages that failed, every other one went out. Throws only when interrupted.
+    default List<SendFailure> sendAll(List<AccountsMsgDto> batch) {
+        List<SendFailure> failures = new ArrayList<>();
+        for (AccountsMsgDto accountsMsgDto : batch) {
+            try {
+                send(accountsMsgDto);
+            } catch (CancellationException e) {
+                throw e;
+            } catch (RuntimeException e) {
+                failures.add(new SendFailure(accountsMsgDto, e));
+            }
+        }
+        return failures;
+    }
+}
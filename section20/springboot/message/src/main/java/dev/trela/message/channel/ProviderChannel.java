@@ -0,0 +1,57 @@
+package dev.trela.message.channel;
+
+import dev.trela.message.dto.AccountsMsgDto;
+import dev.trela.message.provider.ProviderRegistry;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+// Channel delivered by the provider configured for it. Waits for the provider's future
+// interruptibly; an interrupt (dispatcher timeout) cancels the future, which drops the send if
+// the throttle has not started it yet. A send the provider already has may still go out, so the
+// CancellationException thrown then means "outcome unknown", not "not sent".
+public abstract class ProviderChannel implements NotificationChannel {
+
+    private final ProviderRegistry providerRegistry;
+
+    protected ProviderChannel(ProviderRegistry providerRegistry) {
+        this.providerRegistry = providerRegistry;
+    }
+
+    @Override
+    public void send(AccountsMsgDto accountsMsgDto) {
+        await(providerRegistry.forChannel(name()).send(accountsMsgDto));
+    }
+
+    @Override
+    public List<SendFailure> sendAll(List<AccountsMsgDto> batch) {
+        List<CompletableFuture<Void>> sends = providerRegistry.forChannel(name()).sendBatch(batch);
+        List<SendFailure> failures = new ArrayList<>();
+        for (int i = 0; i < sends.size(); i++) {
+            try {
+                await(sends.get(i));
+            } catch (CancellationException e) {
+                sends.forEach(send -> send.cancel(true));
+                throw e;
+            } catch (RuntimeException e) {
+                failures.add(new SendFailure(batch.get(i), e));
+            }
+        }
+        return failures;
+    }
+
+    private static void await(CompletableFuture<Void> send) {
+        try {
+            send.get();
+        } catch (InterruptedException e) {
+            send.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted while waiting for the provider");
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof RuntimeException runtime ? runtime : new IllegalStateException(e.getCause());
+        }
+    }
+}
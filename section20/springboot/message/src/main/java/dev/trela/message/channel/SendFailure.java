@@ -0,0 +1,7 @@
+package dev.trela.message.channel;
+
+import dev.trela.message.dto.AccountsMsgDto;
+
+// a message of a batch that did not go out, with the reason
+public record SendFailure(AccountsMsgDto accountsMsgDto, Throwable error) {
+}
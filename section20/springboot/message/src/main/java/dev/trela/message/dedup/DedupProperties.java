@@ -0,0 +1,20 @@
+package dev.trela.message.dedup;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "trelabank.message.dedup")
+public class DedupProperties {
+
+    private boolean enabled = true;
+    // how long a sent notification is remembered (between one and two windows)
+    private Duration window = Duration.ofHours(24);
+    private long expectedPerWindow = 2_000_000;
+    private double falsePositiveRate = 0.01;
+    // exact keys kept per window to confirm Bloom filter hits, up to 32 bytes each (two generations);
+    // at least expectedPerWindow, otherwise keys are dropped before the window is over
+    private int maxExactEntries = 2_000_000;
+}
@@ -0,0 +1,115 @@
+package dev.trela.message.dedup;
+
+import dev.trela.message.channel.NotificationChannel;
+import dev.trela.message.channel.SendFailure;
+import dev.trela.message.dto.AccountsMsgDto;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+// Keeps redelivered send-communication records from notifying a customer twice on this instance
+// (retries on other instances skip delivered channels through RetryRouter.DELIVERED_CHANNELS).
+// The Bloom filter answers "never sent" without taking a lock; its hits are confirmed against
+// exact key fingerprints kept for the same window. A hit that cannot be confirmed is sent - a
+// rare duplicate beats a lost notification. It is counted as a false positive, or as
+// "unconfirmed" while the exact store has dropped keys because more than max-exact-entries
+// arrived in a window (message.dedup.exact.evictions).
+@Component
+@Slf4j
+public class MessageDeduplicator {
+
+    private static final String EVENT_TYPE = "account-created";
+
+    private final DedupProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final TimeWindowedBloomFilter bloomFilter;
+    private final TimeWindowedKeySet sent;
+
+    public MessageDeduplicator(DedupProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        this.bloomFilter = new TimeWindowedBloomFilter(properties.getExpectedPerWindow(),
+                properties.getFalsePositiveRate(), properties.getWindow());
+        if (properties.getMaxExactEntries() < properties.getExpectedPerWindow()) {
+            log.warn("max-exact-entries {} is below expected-per-window {}, duplicates past it are not suppressed",
+                    properties.getMaxExactEntries(), properties.getExpectedPerWindow());
+        }
+        this.sent = new TimeWindowedKeySet(properties.isEnabled() ? properties.getMaxExactEntries() : 1,
+                properties.getWindow());
+        Gauge.builder("message.dedup.exact.entries", sent, TimeWindowedKeySet::size).register(meterRegistry);
+        Gauge.builder("message.dedup.exact.size", sent, TimeWindowedKeySet::sizeInBytes)
+                .baseUnit("bytes").register(meterRegistry);
+        Gauge.builder("message.dedup.bloom.size", bloomFilter, TimeWindowedBloomFilter::sizeInBytes)
+                .baseUnit("bytes").register(meterRegistry);
+    }
+
+    public void sendOnce(NotificationChannel channel, AccountsMsgDto accountsMsgDto) {
+        String key = key(channel, accountsMsgDto);
+        if (isDuplicate(key, channel.name())) {
+            log.info("Skipping {} for account {}, already sent", channel.name(), accountsMsgDto.accountNumber());
+            return;
+        }
+        channel.send(accountsMsgDto);
+        markSent(key);
+    }
+
+    // marks the messages that went out, the failed ones are returned for the caller to retry
+    public List<SendFailure> sendAllOnce(NotificationChannel channel, List<AccountsMsgDto> batch) {
+        List<AccountsMsgDto> fresh = batch.stream()
+                .filter(accountsMsgDto -> !isDuplicate(key(channel, accountsMsgDto), channel.name()))
+                .toList();
+        if (fresh.size() < batch.size()) {
+            log.info("Skipping {} of {} {} notifications, already sent", batch.size() - fresh.size(), batch.size(), channel.name());
+        }
+        if (fresh.isEmpty()) {
+            return List.of();
+        }
+        List<SendFailure> failures = channel.sendAll(fresh);
+        Set<AccountsMsgDto> failed = Collections.newSetFromMap(new IdentityHashMap<>());
+        failures.forEach(failure -> failed.add(failure.accountsMsgDto()));
+        fresh.stream()
+                .filter(accountsMsgDto -> !failed.contains(accountsMsgDto))
+                .forEach(accountsMsgDto -> markSent(key(channel, accountsMsgDto)));
+        return failures;
+    }
+
+    private boolean isDuplicate(String key, String channel) {
+        if (!properties.isEnabled()) {
+            return false;
+        }
+        if (!bloomFilter.mightContain(key)) {
+            count(channel, "new");
+            return false;
+        }
+        if (sent.contains(TimeWindowedBloomFilter.fingerprint(key))) {
+            count(channel, "duplicate-suppressed");
+            return true;
+        }
+        count(channel, sent.dropped() > 0 ? "unconfirmed" : "false-positive");
+        return false;
+    }
+
+    private void markSent(String key) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        bloomFilter.put(key);
+        if (!sent.add(TimeWindowedBloomFilter.fingerprint(key))) {
+            meterRegistry.counter("message.dedup.exact.evictions").increment();
+        }
+    }
+
+    private void count(String channel, String result) {
+        meterRegistry.counter("message.dedup.checks", "channel", channel, "result", result).increment();
+    }
+
+    private static String key(NotificationChannel channel, AccountsMsgDto accountsMsgDto) {
+        return EVENT_TYPE + ":" + accountsMsgDto.accountNumber() + ":" + channel.name();
+    }
+}
@@ -0,0 +1,117 @@
+package dev.trela.message.dedup;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongSupplier;
+
+// Bloom filter over a sliding time window: two generations of the same size, the current one
+// takes inserts and both answer lookups. When the current generation is `window` old the
+// previous one is cleared and becomes the current. A key is remembered for at least one window
+// and at most two; memory is fixed at 2 x m bits whatever the traffic.
+public class TimeWindowedBloomFilter {
+
+    private final int bits;
+    private final int hashes;
+    private final long windowNanos;
+    private final LongSupplier nanoClock;
+    private volatile AtomicLongArray current;
+    private volatile AtomicLongArray previous;
+    private volatile long generationStart;
+
+    public TimeWindowedBloomFilter(long expectedInsertionsPerWindow, double falsePositiveRate, Duration window) {
+        this(expectedInsertionsPerWindow, falsePositiveRate, window, System::nanoTime);
+    }
+
+    TimeWindowedBloomFilter(long expectedInsertionsPerWindow, double falsePositiveRate, Duration window,
+                            LongSupplier nanoClock) {
+        long m = (long) Math.ceil(-expectedInsertionsPerWindow * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        this.bits = (int) Math.min(Integer.MAX_VALUE - 63, Math.max(64, m));
+        this.hashes = Math.max(1, (int) Math.round((double) bits / expectedInsertionsPerWindow * Math.log(2)));
+        this.windowNanos = window.toNanos();
+        this.nanoClock = nanoClock;
+        this.current = new AtomicLongArray((bits + 63) / 64);
+        this.previous = new AtomicLongArray((bits + 63) / 64);
+        this.generationStart = nanoClock.getAsLong();
+    }
+
+    public boolean mightContain(String key) {
+        rotateIfDue();
+        long[] hash = hash(key);
+        return contains(current, hash) || contains(previous, hash);
+    }
+
+    public void put(String key) {
+        rotateIfDue();
+        long[] hash = hash(key);
+        AtomicLongArray generation = current;
+        for (int i = 0; i < hashes; i++) {
+            int bit = index(hash, i);
+            int word = bit >>> 6;
+            long mask = 1L << bit;
+            long value;
+            do {
+                value = generation.get(word);
+            } while ((value & mask) == 0 && !generation.compareAndSet(word, value, value | mask));
+        }
+    }
+
+    public long sizeInBytes() {
+        return 2L * current.length() * Long.BYTES;
+    }
+
+    private boolean contains(AtomicLongArray generation, long[] hash) {
+        for (int i = 0; i < hashes; i++) {
+            int bit = index(hash, i);
+            if ((generation.get(bit >>> 6) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void rotateIfDue() {
+        if (nanoClock.getAsLong() - generationStart < windowNanos) {
+            return;
+        }
+        synchronized (this) {
+            long now = nanoClock.getAsLong();
+            if (now - generationStart < windowNanos) {
+                return;
+            }
+            AtomicLongArray expired = previous;
+            for (int i = 0; i < expired.length(); i++) {
+                expired.set(i, 0);
+            }
+            previous = current;
+            current = expired;
+            generationStart = now;
+        }
+    }
+
+    // Kirsch-Mitzenmacher: the i-th index is h1 + i * h2
+    private int index(long[] hash, int i) {
+        long combined = hash[0] + i * hash[1];
+        return (int) ((combined & Long.MAX_VALUE) % bits);
+    }
+
+    // 64-bit fingerprint of a key for TimeWindowedKeySet
+    static long fingerprint(String key) {
+        return hash(key)[0];
+    }
+
+    private static long[] hash(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b;
+            h *= 0x100000001b3L;
+        }
+        return new long[]{mix(h), mix(h ^ 0x9e3779b97f4a7c15L) | 1};
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+        z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return z ^ (z >>> 33);
+    }
+}
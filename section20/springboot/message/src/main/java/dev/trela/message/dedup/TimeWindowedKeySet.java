@@ -0,0 +1,130 @@
+package dev.trela.message.dedup;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.function.LongSupplier;
+
+// Exact membership over the same sliding window as TimeWindowedBloomFilter: two generations of
+// 64-bit key fingerprints in open-addressing tables sized for capacityPerWindow keys, so the
+// whole window fits (8 bytes per slot instead of a String and a map entry per key). A generation
+// that is full drops further keys and counts them; those keys are then only in the Bloom filter.
+// Fingerprints are 64 bits, a collision that hides a notification is not a practical concern.
+public class TimeWindowedKeySet {
+
+    private static final long EMPTY = 0;
+
+    private final int capacity;
+    private final long windowNanos;
+    private final LongSupplier nanoClock;
+    // guarded by this
+    private Generation current;
+    private Generation previous;
+    private long generationStart;
+
+    public TimeWindowedKeySet(int capacityPerWindow, Duration window) {
+        this(capacityPerWindow, window, System::nanoTime);
+    }
+
+    TimeWindowedKeySet(int capacityPerWindow, Duration window, LongSupplier nanoClock) {
+        this.capacity = Math.max(1, capacityPerWindow);
+        this.windowNanos = window.toNanos();
+        this.nanoClock = nanoClock;
+        this.current = new Generation(capacity);
+        this.previous = new Generation(capacity);
+        this.generationStart = nanoClock.getAsLong();
+    }
+
+    public synchronized boolean contains(long fingerprint) {
+        rotateIfDue();
+        long key = nonEmpty(fingerprint);
+        return current.contains(key) || previous.contains(key);
+    }
+
+    // false when the current generation is full and the key was dropped
+    public synchronized boolean add(long fingerprint) {
+        rotateIfDue();
+        return current.add(nonEmpty(fingerprint), capacity);
+    }
+
+    // keys dropped by the generations still answering lookups
+    public synchronized long dropped() {
+        rotateIfDue();
+        return current.dropped + previous.dropped;
+    }
+
+    public synchronized int size() {
+        return current.size + previous.size;
+    }
+
+    public long sizeInBytes() {
+        return 2L * current.slots.length * Long.BYTES;
+    }
+
+    private void rotateIfDue() {
+        long now = nanoClock.getAsLong();
+        if (now - generationStart < windowNanos) {
+            return;
+        }
+        Generation expired = previous;
+        expired.clear();
+        previous = current;
+        current = expired;
+        generationStart = now;
+    }
+
+    private static long nonEmpty(long fingerprint) {
+        return fingerprint == EMPTY ? 1 : fingerprint;
+    }
+
+    private static final class Generation {
+
+        private final long[] slots;
+        private final int mask;
+        private int size;
+        private long dropped;
+
+        private Generation(int capacity) {
+            // load factor of at most 2/3 keeps linear probing short
+            int length = Integer.highestOneBit(Math.max(2, capacity + capacity / 2) - 1) << 1;
+            this.slots = new long[length];
+            this.mask = length - 1;
+        }
+
+        private boolean contains(long key) {
+            for (int i = spread(key) & mask; ; i = (i + 1) & mask) {
+                if (slots[i] == key) {
+                    return true;
+                }
+                if (slots[i] == EMPTY) {
+                    return false;
+                }
+            }
+        }
+
+        private boolean add(long key, int capacity) {
+            int i = spread(key) & mask;
+            for (; slots[i] != EMPTY; i = (i + 1) & mask) {
+                if (slots[i] == key) {
+                    return true;
+                }
+            }
+            if (size >= capacity) {
+                dropped++;
+                return false;
+            }
+            slots[i] = key;
+            size++;
+            return true;
+        }
+
+        private void clear() {
+            Arrays.fill(slots, EMPTY);
+            size = 0;
+            dropped = 0;
+        }
+
+        private static int spread(long key) {
+            return (int) (key ^ (key >>> 32));
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package dev.trela.message.dispatch;
+
+import lombok.Getter;
+
+@Getter
+public class DispatchFailedException extends RuntimeException {
+
+    private final DispatchResult result;
+
+    public DispatchFailedException(DispatchResult result) {
+        super("Required channels failed for account " + result.accountNumber() + ": " + result.channels());
+        this.result = result;
+    }
+}
@@ -0,0 +1,30 @@
+package dev.trela.message.dispatch;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+@Data
+@ConfigurationProperties(prefix = "trelabank.message.dispatch")
+public class DispatchProperties {
+
+    // keyed by NotificationChannel.name(), channels without an entry use the defaults
+    private Map<String, ChannelPolicy> channels = new HashMap<>();
+
+    public ChannelPolicy policy(String channel) {
+        return channels.getOrDefault(channel, new ChannelPolicy());
+    }
+
+    @Data
+    public static class ChannelPolicy {
+        // confirmation to accounts waits for every required channel
+        private boolean required = true;
+        // per attempt
+        private Duration timeout = Duration.ofSeconds(5);
+        private int maxAttempts = 3;
+        private Duration backoff = Duration.ofMillis(200);
+    }
+}
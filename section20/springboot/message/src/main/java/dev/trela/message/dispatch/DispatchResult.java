@@ -0,0 +1,24 @@
+package dev.trela.message.dispatch;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+public record DispatchResult(Long accountNumber, Map<String, ChannelResult> channels) {
+
+    public boolean requiredSucceeded(DispatchProperties properties) {
+        return channels.entrySet().stream()
+                .allMatch(entry -> entry.getValue().success() || !properties.policy(entry.getKey()).isRequired());
+    }
+
+    public Set<String> succeededChannels() {
+        return channels.entrySet().stream()
+                .filter(entry -> entry.getValue().success())
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toSet());
+    }
+
+    public record ChannelResult(boolean success, int attempts, Duration elapsed, String error) {
+    }
+}
@@ -0,0 +1,148 @@
+package dev.trela.message.dispatch;
+
+import dev.trela.message.channel.NotificationChannel;
+import dev.trela.message.dedup.MessageDeduplicator;
+import dev.trela.message.dto.AccountsMsgDto;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+// Sends one message on every channel at the same time, each channel on its own virtual thread
+// with its own timeout and retries, so the message takes as long as its slowest channel
+// and one failing channel does not hold up the others. Channels that already went out on an
+// earlier delivery of the record (on any instance, see RetryRouter.DELIVERED_CHANNELS) are
+// skipped. A timed out attempt is interrupted and then given one more timeout to settle before
+// the next attempt: if it delivered after all that counts as success, if it still hangs the
+// channel gives up rather than risk sending twice.
+@Component
+@Slf4j
+public class NotificationDispatcher implements AutoCloseable {
+
+    private final List<NotificationChannel> channels;
+    private final DispatchProperties properties;
+    private final MessageDeduplicator messageDeduplicator;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public NotificationDispatcher(List<NotificationChannel> channels, DispatchProperties properties,
+                                  MessageDeduplicator messageDeduplicator) {
+        this.channels = channels;
+        this.properties = properties;
+        this.messageDeduplicator = messageDeduplicator;
+    }
+
+    public DispatchResult dispatch(AccountsMsgDto accountsMsgDto) {
+        return dispatch(accountsMsgDto, Set.of());
+    }
+
+    // `delivered`: channels an earlier delivery of this record already sent
+    public DispatchResult dispatch(AccountsMsgDto accountsMsgDto, Set<String> delivered) {
+        Map<String, CompletableFuture<DispatchResult.ChannelResult>> pending = new LinkedHashMap<>();
+        for (NotificationChannel channel : channels) {
+            if (delivered.contains(channel.name())) {
+                log.debug("Skipping {} for account {}, delivered earlier", channel.name(), accountsMsgDto.accountNumber());
+                pending.put(channel.name(), CompletableFuture.completedFuture(
+                        new DispatchResult.ChannelResult(true, 0, Duration.ZERO, null)));
+                continue;
+            }
+            pending.put(channel.name(), CompletableFuture.supplyAsync(
+                    () -> send(channel, accountsMsgDto, properties.policy(channel.name())), executor));
+        }
+        Map<String, DispatchResult.ChannelResult> results = new LinkedHashMap<>();
+        pending.forEach((name, future) -> results.put(name, future.join()));
+        DispatchResult result = new DispatchResult(accountsMsgDto.accountNumber(), results);
+        log.debug("Dispatched {}", result);
+        return result;
+    }
+
+    private DispatchResult.ChannelResult send(NotificationChannel channel, AccountsMsgDto accountsMsgDto,
+                                              DispatchProperties.ChannelPolicy policy) {
+        long start = System.nanoTime();
+        String error = null;
+        for (int attempt = 1; attempt <= policy.getMaxAttempts(); attempt++) {
+            // completes once the attempt's thread is done, a cancelled Future does not wait for that
+            CompletableFuture<Boolean> settled = new CompletableFuture<>();
+            Future<?> send = executor.submit(() -> {
+                try {
+                    messageDeduplicator.sendOnce(channel, accountsMsgDto);
+                    settled.complete(true);
+                    return null;
+                } catch (CancellationException e) {
+                    // abandoned while the provider may have had it, see ProviderChannel
+                    settled.completeExceptionally(e);
+                    throw e;
+                } finally {
+                    settled.complete(false);
+                }
+            });
+            try {
+                send.get(policy.getTimeout().toMillis(), TimeUnit.MILLISECONDS);
+                return new DispatchResult.ChannelResult(true, attempt, Duration.ofNanos(System.nanoTime() - start), null);
+            } catch (TimeoutException e) {
+                send.cancel(true);
+                error = "timed out after " + policy.getTimeout().toMillis() + "ms";
+                Boolean sent = awaitSettled(settled, policy.getTimeout());
+                if (Boolean.TRUE.equals(sent)) {
+                    return new DispatchResult.ChannelResult(true, attempt, Duration.ofNanos(System.nanoTime() - start), null);
+                }
+                if (sent == null) {
+                    log.warn("{} for account {} still running after attempt {} was cancelled, not retrying",
+                            channel.name(), accountsMsgDto.accountNumber(), attempt);
+                    return new DispatchResult.ChannelResult(false, attempt, Duration.ofNanos(System.nanoTime() - start),
+                            error + ", outcome unknown");
+                }
+            } catch (ExecutionException e) {
+                error = String.valueOf(e.getCause());
+            } catch (InterruptedException e) {
+                send.cancel(true);
+                Thread.currentThread().interrupt();
+                return new DispatchResult.ChannelResult(false, attempt, Duration.ofNanos(System.nanoTime() - start), "interrupted");
+            }
+            log.warn("{} for account {} failed on attempt {}: {}", channel.name(), accountsMsgDto.accountNumber(), attempt, error);
+            if (attempt < policy.getMaxAttempts() && !sleep(policy.getBackoff().multipliedBy(attempt))) {
+                break;
+            }
+        }
+        return new DispatchResult.ChannelResult(false, policy.getMaxAttempts(), Duration.ofNanos(System.nanoTime() - start), error);
+    }
+
+    // true or false once the attempt finished, null if it did not within the grace period or
+    // its outcome is unknown
+    private static Boolean awaitSettled(CompletableFuture<Boolean> settled, Duration grace) {
+        try {
+            return settled.get(grace.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException | ExecutionException e) {
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    private static boolean sleep(Duration backoff) {
+        try {
+            Thread.sleep(backoff);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    @Override
+    public void close() {
+        executor.close();
+    }
+}
@@ -1,20 +1,44 @@
 package dev.trela.message.functions;
 
+import dev.trela.message.channel.EmailChannel;
+import dev.trela.message.channel.SendFailure;
+import dev.trela.message.channel.SmsChannel;
+import dev.trela.message.dedup.MessageDeduplicator;
+import dev.trela.message.dispatch.DispatchFailedException;
+import dev.trela.message.dispatch.DispatchProperties;
+import dev.trela.message.dispatch.DispatchResult;
+import dev.trela.message.dispatch.NotificationDispatcher;
 import dev.trela.message.dto.AccountsMsgDto;
+import dev.trela.message.retry.RetryRouter;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.support.MessageBuilder;
 
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
 import java.util.function.Function;
 
 @Configuration
 @Slf4j
+@RequiredArgsConstructor
 public class MessageFunctions {
 
+    private final EmailChannel emailChannel;
+    private final SmsChannel smsChannel;
+    private final NotificationDispatcher notificationDispatcher;
+    private final DispatchProperties dispatchProperties;
+    private final MessageDeduplicator messageDeduplicator;
+    private final RetryRouter retryRouter;
+
     @Bean
     public Function<AccountsMsgDto, AccountsMsgDto> email() {
         return accountsMsgDto -> {
-            log.info("Sending email with details: " + accountsMsgDto.toString());
+            messageDeduplicator.sendOnce(emailChannel, accountsMsgDto);
             return accountsMsgDto;
         };
     }
@@ -22,10 +46,58 @@ public class MessageFunctions {
     @Bean
     public Function<AccountsMsgDto, Long> sms(){
         return accountsMsgDto ->{
-            log.info("Sending sms with details: " + accountsMsgDto.toString());
+            messageDeduplicator.sendOnce(smsChannel, accountsMsgDto);
             return accountsMsgDto.accountNumber();
         };
     }
 
+    // concurrent profile: all channels at once, confirmed once the required ones went out;
+    // otherwise the message fails and moves to the retry tiers, which skip the channels that made it
+    @Bean
+    public Function<Message<AccountsMsgDto>, Long> dispatch() {
+        return message -> {
+            AccountsMsgDto accountsMsgDto = message.getPayload();
+            DispatchResult result = notificationDispatcher.dispatch(accountsMsgDto,
+                    RetryRouter.deliveredChannels(message.getHeaders()));
+            if (!result.requiredSucceeded(dispatchProperties)) {
+                throw new DispatchFailedException(result);
+            }
+            return accountsMsgDto.accountNumber();
+        };
+    }
+
+    // batch profile: one invocation per poll, the account numbers go out as a single message.
+    // A message that fails moves to the retry tiers on its own, the rest of the poll goes on
+    @Bean
+    public Function<List<AccountsMsgDto>, List<AccountsMsgDto>> emailBatch() {
+        return batch -> {
+            List<SendFailure> failures = messageDeduplicator.sendAllOnce(emailChannel, batch);
+            return delivered(batch, failures, Set.of());
+        };
+    }
+
+    @Bean
+    public Function<List<AccountsMsgDto>, List<Long>> smsBatch() {
+        return batch -> {
+            List<SendFailure> failures = messageDeduplicator.sendAllOnce(smsChannel, batch);
+            // only messages whose email went out reach sms
+            return delivered(batch, failures, Set.of(emailChannel.name())).stream()
+                    .map(AccountsMsgDto::accountNumber).toList();
+        };
+    }
 
+    private List<AccountsMsgDto> delivered(List<AccountsMsgDto> batch, List<SendFailure> failures, Set<String> deliveredChannels) {
+        if (failures.isEmpty()) {
+            return batch;
+        }
+        Set<AccountsMsgDto> failed = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (SendFailure failure : failures) {
+            failed.add(failure.accountsMsgDto());
+            retryRouter.forward(MessageBuilder.withPayload(failure.accountsMsgDto())
+                    .setHeader(RetryRouter.ORIGINAL_TOPIC, "send-communication")
+                    .setHeader(RetryRouter.DELIVERED_CHANNELS, String.join(",", deliveredChannels))
+                    .build(), failure.error());
+        }
+        return batch.stream().filter(accountsMsgDto -> !failed.contains(accountsMsgDto)).toList();
+    }
 }
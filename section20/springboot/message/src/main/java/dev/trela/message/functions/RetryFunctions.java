@@ -0,0 +1,113 @@
+package dev.trela.message.functions;
+
+import dev.trela.message.dispatch.DispatchFailedException;
+import dev.trela.message.dispatch.DispatchProperties;
+import dev.trela.message.dispatch.DispatchResult;
+import dev.trela.message.dispatch.NotificationDispatcher;
+import dev.trela.message.dto.AccountsMsgDto;
+import dev.trela.message.retry.RetryProperties;
+import dev.trela.message.retry.RetryRouter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cloud.stream.function.StreamBridge;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.support.ErrorMessage;
+import org.springframework.messaging.support.MessageBuilder;
+
+import java.time.Duration;
+import java.util.function.Consumer;
+
+// Non-blocking retries: a record that fails on send-communication is handed to
+// sendCommunicationErrors (binding error-handler-definition) and moves through the retry tier
+// topics, each consumed by its own binding that waits out the tier's delay, then to the dead
+// letter topic. The main topic never waits for a failing record.
+@Configuration
+@Slf4j
+@RequiredArgsConstructor
+public class RetryFunctions {
+
+    private final RetryRouter retryRouter;
+    private final RetryProperties retryProperties;
+    private final NotificationDispatcher notificationDispatcher;
+    private final DispatchProperties dispatchProperties;
+    private final StreamBridge streamBridge;
+
+    @Bean
+    public Consumer<ErrorMessage> sendCommunicationErrors() {
+        return errorMessage -> {
+            Message<?> failed = errorMessage.getOriginalMessage();
+            if (failed == null) {
+                log.error("Failed record without original message", errorMessage.getPayload());
+                return;
+            }
+            retryRouter.forward(failed, errorMessage.getPayload());
+        };
+    }
+
+    @Bean
+    public Consumer<Message<AccountsMsgDto>> retry1() {
+        return tier(1);
+    }
+
+    @Bean
+    public Consumer<Message<AccountsMsgDto>> retry2() {
+        return tier(2);
+    }
+
+    @Bean
+    public Consumer<Message<AccountsMsgDto>> retry3() {
+        return tier(3);
+    }
+
+    // records of a tier all wait the same delay, so they become due in the order they arrive
+    // and sleeping until the head is due holds up nothing that is already due
+    private Consumer<Message<AccountsMsgDto>> tier(int tier) {
+        return message -> {
+            Duration delay = retryProperties.getDelays().get(tier - 1);
+            long enqueuedAt = RetryRouter.longHeader(message.getHeaders(), KafkaHeaders.RECEIVED_TIMESTAMP, System.currentTimeMillis());
+            long wait = enqueuedAt + delay.toMillis() - System.currentTimeMillis();
+            if (wait > 0) {
+                try {
+                    Thread.sleep(wait);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while waiting for retry tier " + tier, e);
+                }
+            }
+            AccountsMsgDto accountsMsgDto = message.getPayload();
+            try {
+                DispatchResult result = notificationDispatcher.dispatch(accountsMsgDto,
+                        RetryRouter.deliveredChannels(message.getHeaders()));
+                if (!result.requiredSucceeded(dispatchProperties)) {
+                    throw new DispatchFailedException(result);
+                }
+                streamBridge.send("communication-sent", accountsMsgDto.accountNumber());
+            } catch (RuntimeException e) {
+                retryRouter.forward(message, e);
+            }
+        };
+    }
+
+    // replay profile: puts dead letters back on send-communication as fresh records
+    @Bean
+    public Consumer<Message<byte[]>> dlqReplay(MeterRegistry meterRegistry) {
+        return message -> {
+            MessageHeaders headers = message.getHeaders();
+            log.info("Replaying dead letter from {} after {} attempts, last error: {}",
+                    RetryRouter.stringHeader(headers, RetryRouter.ORIGINAL_TOPIC, "unknown"),
+                    RetryRouter.stringHeader(headers, RetryRouter.ATTEMPT, "?"),
+                    RetryRouter.stringHeader(headers, RetryRouter.LAST_ERROR, ""));
+            streamBridge.send("send-communication", MessageBuilder.withPayload(message.getPayload())
+                    .setHeader(MessageHeaders.CONTENT_TYPE, "application/json")
+                    .setHeader(RetryRouter.ORIGINAL_TIMESTAMP, RetryRouter.stringHeader(headers, RetryRouter.ORIGINAL_TIMESTAMP, ""))
+                    .setHeader(RetryRouter.DELIVERED_CHANNELS, RetryRouter.stringHeader(headers, RetryRouter.DELIVERED_CHANNELS, ""))
+                    .build());
+            meterRegistry.counter("message.retry.replayed").increment();
+        };
+    }
+}
@@ -0,0 +1,72 @@
+package dev.trela.message.ordering;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.Semaphore;
+
+// Runs tasks of the same key one after another and tasks of different keys in parallel, each
+// key draining its queue on its own virtual thread (the thread ends when the queue is empty).
+// At most maxPending tasks are accepted; submit() blocks beyond that, which is what slows the
+// Kafka poll loop down instead of buffering without limit.
+@Slf4j
+public class KeyOrderedExecutor {
+
+    private final Semaphore capacity;
+    private final Map<String, Queue<Runnable>> queues = new HashMap<>();
+
+    public KeyOrderedExecutor(int maxPending, MeterRegistry meterRegistry) {
+        this.capacity = new Semaphore(maxPending);
+        Gauge.builder("message.ordered.pending", capacity, c -> maxPending - c.availablePermits()).register(meterRegistry);
+        Gauge.builder("message.ordered.active.keys", this, KeyOrderedExecutor::activeKeys).register(meterRegistry);
+    }
+
+    public void submit(String key, Runnable task) throws InterruptedException {
+        capacity.acquire();
+        boolean start;
+        synchronized (queues) {
+            Queue<Runnable> queue = queues.get(key);
+            start = queue == null;
+            if (start) {
+                queue = new ArrayDeque<>();
+                queues.put(key, queue);
+            }
+            queue.add(task);
+        }
+        if (start) {
+            Thread.ofVirtual().name("ordered-" + key).start(() -> drain(key));
+        }
+    }
+
+    private void drain(String key) {
+        while (true) {
+            Runnable task;
+            synchronized (queues) {
+                Queue<Runnable> queue = queues.get(key);
+                task = queue.poll();
+                if (task == null) {
+                    queues.remove(key);
+                    return;
+                }
+            }
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                log.error("Task for key {} failed", key, e);
+            } finally {
+                capacity.release();
+            }
+        }
+    }
+
+    private int activeKeys() {
+        synchronized (queues) {
+            return queues.size();
+        }
+    }
+}
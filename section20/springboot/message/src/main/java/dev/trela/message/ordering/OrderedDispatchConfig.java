@@ -0,0 +1,115 @@
+package dev.trela.message.ordering;
+
+import dev.trela.message.dispatch.DispatchFailedException;
+import dev.trela.message.dispatch.DispatchProperties;
+import dev.trela.message.dispatch.DispatchResult;
+import dev.trela.message.dispatch.NotificationDispatcher;
+import dev.trela.message.dto.AccountsMsgDto;
+import dev.trela.message.retry.RetryRouter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.stream.config.ListenerContainerCustomizer;
+import org.springframework.cloud.stream.function.StreamBridge;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.kafka.listener.AbstractMessageListenerContainer;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.messaging.Message;
+
+import java.time.Duration;
+import java.util.function.Consumer;
+
+// ordered profile: records of one partition are handed to per accountNumber queues and
+// processed in parallel across accounts, in order within one. Each record is acknowledged when
+// its notifications are done; with async acks the container commits a partition's offset only
+// up to the first record that is still outstanding, so a restart never skips unfinished work.
+// A failed record goes to the retry tiers and is acknowledged once they have it; handing it
+// over is retried until the broker takes it, a record is never acknowledged without having been
+// sent or forwarded. Per account ordering only holds on this topic: a record in the retry tiers
+// is overtaken by the later records of its account, which go out in the meantime.
+@Configuration
+@Profile("ordered")
+@Slf4j
+public class OrderedDispatchConfig {
+
+    private static final Duration FORWARD_BACKOFF = Duration.ofMillis(500);
+    private static final Duration MAX_FORWARD_BACKOFF = Duration.ofSeconds(30);
+
+    @Bean
+    public KeyOrderedExecutor keyOrderedExecutor(MeterRegistry meterRegistry,
+                                                 @Value("${trelabank.message.ordered.max-pending:1000}") int maxPending) {
+        return new KeyOrderedExecutor(maxPending, meterRegistry);
+    }
+
+    @Bean
+    public ListenerContainerCustomizer<AbstractMessageListenerContainer<?, ?>> asyncAcks() {
+        // retry tier bindings keep the default ack mode
+        return (container, destination, group) -> {
+            if ("send-communication".equals(destination)) {
+                container.getContainerProperties().setAsyncAcks(true);
+            }
+        };
+    }
+
+    @Bean
+    public Consumer<Message<AccountsMsgDto>> orderedDispatch(KeyOrderedExecutor keyOrderedExecutor,
+                                                             NotificationDispatcher notificationDispatcher,
+                                                             DispatchProperties dispatchProperties,
+                                                             StreamBridge streamBridge,
+                                                             RetryRouter retryRouter) {
+        return message -> {
+            AccountsMsgDto accountsMsgDto = message.getPayload();
+            Acknowledgment acknowledgment = message.getHeaders().get(KafkaHeaders.ACKNOWLEDGMENT, Acknowledgment.class);
+            try {
+                keyOrderedExecutor.submit(String.valueOf(accountsMsgDto.accountNumber()), () -> {
+                    try {
+                        DispatchResult result = notificationDispatcher.dispatch(accountsMsgDto,
+                                RetryRouter.deliveredChannels(message.getHeaders()));
+                        if (!result.requiredSucceeded(dispatchProperties)) {
+                            throw new DispatchFailedException(result);
+                        }
+                        streamBridge.send("communicationSent-out-0", accountsMsgDto.accountNumber());
+                    } catch (RuntimeException e) {
+                        // off to the retry tiers, the partition's commit point moves on
+                        if (!forwardUntilAccepted(retryRouter, message, e)) {
+                            // shutting down: left unacknowledged, consumed again after the restart
+                            return;
+                        }
+                    }
+                    if (acknowledgment != null) {
+                        acknowledgment.acknowledge();
+                    }
+                });
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while queueing account " + accountsMsgDto.accountNumber(), e);
+            }
+        };
+    }
+
+    // false when interrupted before the retry tiers took the record; holds up only its account
+    private static boolean forwardUntilAccepted(RetryRouter retryRouter, Message<AccountsMsgDto> message,
+                                                RuntimeException error) {
+        Duration backoff = FORWARD_BACKOFF;
+        while (true) {
+            try {
+                retryRouter.forward(message, error);
+                return true;
+            } catch (RuntimeException e) {
+                log.error("Could not move account {} to the retry tiers, trying again in {}",
+                        message.getPayload().accountNumber(), backoff, e);
+            }
+            try {
+                Thread.sleep(backoff);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+            Duration doubled = backoff.multipliedBy(2);
+            backoff = doubled.compareTo(MAX_FORWARD_BACKOFF) > 0 ? MAX_FORWARD_BACKOFF : doubled;
+        }
+    }
+}
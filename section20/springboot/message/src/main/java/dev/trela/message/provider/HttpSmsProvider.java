@@ -0,0 +1,77 @@
+package dev.trela.message.provider;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.trela.message.dto.AccountsMsgDto;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+// SMS over an HTTP gateway with java.net.http: sendAsync never blocks the caller, connections
+// are pooled by the client and HTTP/2 multiplexes concurrent sends over one of them.
+// With batch-path set, batches go to the gateway's bulk endpoint in a single request.
+public class HttpSmsProvider implements NotificationProvider {
+
+    private final ProviderProperties.HttpSms properties;
+    private final ObjectMapper objectMapper;
+    private final HttpClient httpClient;
+
+    public HttpSmsProvider(ProviderProperties.HttpSms properties, ObjectMapper objectMapper) {
+        this.properties = properties;
+        this.objectMapper = objectMapper;
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(properties.getConnectTimeout())
+                .build();
+    }
+
+    @Override
+    public String name() {
+        return "http-sms";
+    }
+
+    @Override
+    public CompletableFuture<Void> send(AccountsMsgDto accountsMsgDto) {
+        return post(properties.getUrl(), sms(accountsMsgDto));
+    }
+
+    @Override
+    public List<CompletableFuture<Void>> sendBatch(List<AccountsMsgDto> batch) {
+        if (properties.getBatchPath() == null) {
+            return NotificationProvider.super.sendBatch(batch);
+        }
+        // the bulk endpoint answers for the whole request, every message shares its outcome
+        CompletableFuture<Void> bulk = post(properties.getUrl() + properties.getBatchPath(), batch.stream().map(this::sms).toList());
+        return Collections.nCopies(batch.size(), bulk);
+    }
+
+    private CompletableFuture<Void> post(String url, Object body) {
+        HttpRequest request;
+        try {
+            request = HttpRequest.newBuilder(URI.create(url))
+                    .timeout(properties.getTimeout())
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(body)))
+                    .build();
+        } catch (JsonProcessingException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                .thenAccept(response -> {
+                    if (response.statusCode() / 100 != 2) {
+                        throw new IllegalStateException("SMS gateway answered " + response.statusCode());
+                    }
+                });
+    }
+
+    private Map<String, String> sms(AccountsMsgDto accountsMsgDto) {
+        return Map.of("to", accountsMsgDto.mobileNumber(),
+                "text", "TrelaBank: your account " + accountsMsgDto.accountNumber() + " is ready.");
+    }
+}
@@ -0,0 +1,21 @@
+package dev.trela.message.provider;
+
+import dev.trela.message.dto.AccountsMsgDto;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+// SPI for whatever actually delivers a notification. Implementations are Spring beans, looked
+// up by name() from trelabank.message.providers.<channel>; sends must not block the caller.
+public interface NotificationProvider {
+
+    String name();
+
+    CompletableFuture<Void> send(AccountsMsgDto accountsMsgDto);
+
+    // one future per message, in batch order, so that a partial failure only fails its own messages;
+    // providers whose protocol has a bulk form override this with a single round trip
+    default List<CompletableFuture<Void>> sendBatch(List<AccountsMsgDto> batch) {
+        return batch.stream().map(this::send).toList();
+    }
+}
@@ -0,0 +1,29 @@
+package dev.trela.message.provider;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.mail.javamail.JavaMailSender;
+
+@Configuration
+public class ProviderConfig {
+
+    @Bean
+    public StubProvider stubProvider(ProviderProperties properties) {
+        return new StubProvider(properties.getStub());
+    }
+
+    // JavaMailSender is auto-configured from spring.mail.*
+    @Bean
+    @ConditionalOnProperty(prefix = "spring.mail", name = "host")
+    public SmtpEmailProvider smtpEmailProvider(JavaMailSender mailSender, ProviderProperties properties) {
+        return new SmtpEmailProvider(mailSender, properties.getSmtp());
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "trelabank.message.providers.http-sms", name = "url")
+    public HttpSmsProvider httpSmsProvider(ProviderProperties properties, ObjectMapper objectMapper) {
+        return new HttpSmsProvider(properties.getHttpSms(), objectMapper);
+    }
+}
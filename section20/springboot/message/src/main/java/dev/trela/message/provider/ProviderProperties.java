@@ -0,0 +1,65 @@
+package dev.trela.message.provider;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+@Data
+@ConfigurationProperties(prefix = "trelabank.message.providers")
+public class ProviderProperties {
+
+    // provider name per channel
+    private String email = "stub";
+    private String sms = "stub";
+    // keyed by provider name
+    private Map<String, Throttle> throttle = new HashMap<>();
+    private Stub stub = new Stub();
+    private Smtp smtp = new Smtp();
+    private HttpSms httpSms = new HttpSms();
+
+    public String forChannel(String channel) {
+        return "email".equals(channel) ? email : sms;
+    }
+
+    public Throttle throttle(String provider) {
+        return throttle.getOrDefault(provider, new Throttle());
+    }
+
+    @Data
+    public static class Throttle {
+        private double ratePerSecond = 100;
+        // unused rate that may be spent at once
+        private Duration burst = Duration.ofSeconds(1);
+        // provider calls in flight, a batch is one call
+        private int maxConcurrency = 16;
+        // calls waiting for a slot or their rate, further calls fail
+        private int maxQueued = 1000;
+    }
+
+    @Data
+    public static class Stub {
+        private Duration latency = Duration.ofMillis(50);
+        private Duration jitter = Duration.ofMillis(20);
+        private double failureRate = 0.0;
+    }
+
+    @Data
+    public static class Smtp {
+        private String from = "no-reply@trelabank.dev";
+        // single sends are collected for up to `linger` and delivered over one SMTP session
+        private int maxBatch = 50;
+        private Duration linger = Duration.ofMillis(20);
+    }
+
+    @Data
+    public static class HttpSms {
+        private String url;
+        // optional bulk endpoint of the gateway, relative to url
+        private String batchPath;
+        private Duration connectTimeout = Duration.ofSeconds(1);
+        private Duration timeout = Duration.ofSeconds(2);
+    }
+}
@@ -0,0 +1,44 @@
+package dev.trela.message.provider;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// Every NotificationProvider bean, each behind its own throttle, resolved per channel.
+@Component
+public class ProviderRegistry implements AutoCloseable {
+
+    private final ProviderProperties properties;
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("provider-throttle").daemon().factory());
+    private final Map<String, NotificationProvider> providers;
+
+    public ProviderRegistry(List<NotificationProvider> providers, ProviderProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.providers = providers.stream()
+                .map(provider -> (NotificationProvider) new ThrottledProvider(provider,
+                        properties.throttle(provider.name()), timer, meterRegistry))
+                .collect(Collectors.toMap(NotificationProvider::name, Function.identity()));
+    }
+
+    public NotificationProvider forChannel(String channel) {
+        String name = properties.forChannel(channel);
+        NotificationProvider provider = providers.get(name);
+        if (provider == null) {
+            throw new IllegalStateException("No notification provider '" + name + "' for channel " + channel
+                    + ", available: " + providers.keySet());
+        }
+        return provider;
+    }
+
+    @Override
+    public void close() {
+        timer.shutdownNow();
+    }
+}
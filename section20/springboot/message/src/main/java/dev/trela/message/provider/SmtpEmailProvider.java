@@ -0,0 +1,147 @@
+package dev.trela.message.provider;
+
+import dev.trela.message.dto.AccountsMsgDto;
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.MimeMessage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.MimeMessageHelper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// JavaMailSender opens one SMTP session per send() call and delivers every message passed to it
+// over that session. Single sends are therefore collected for up to `linger` (or `maxBatch`
+// messages) and go out together; the blocking SMTP conversation runs on virtual threads.
+@Slf4j
+public class SmtpEmailProvider implements NotificationProvider, AutoCloseable {
+
+    private final JavaMailSender mailSender;
+    private final ProviderProperties.Smtp properties;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("smtp-linger").daemon().factory());
+    private final List<Pending> pending = new ArrayList<>();
+    private boolean flushScheduled;
+
+    public SmtpEmailProvider(JavaMailSender mailSender, ProviderProperties.Smtp properties) {
+        this.mailSender = mailSender;
+        this.properties = properties;
+    }
+
+    @Override
+    public String name() {
+        return "smtp";
+    }
+
+    @Override
+    public CompletableFuture<Void> send(AccountsMsgDto accountsMsgDto) {
+        CompletableFuture<Void> result = new CompletableFuture<>();
+        MimeMessage message;
+        try {
+            message = toMimeMessage(accountsMsgDto);
+        } catch (MessagingException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        List<Pending> full = null;
+        synchronized (pending) {
+            pending.add(new Pending(message, result));
+            if (pending.size() >= properties.getMaxBatch()) {
+                full = drain();
+            } else if (!flushScheduled) {
+                flushScheduled = true;
+                timer.schedule(this::flush, properties.getLinger().toNanos(), TimeUnit.NANOSECONDS);
+            }
+        }
+        if (full != null) {
+            deliver(full);
+        }
+        return result;
+    }
+
+    @Override
+    public List<CompletableFuture<Void>> sendBatch(List<AccountsMsgDto> batch) {
+        List<CompletableFuture<Void>> results = new ArrayList<>(batch.size());
+        List<Pending> messages = new ArrayList<>(batch.size());
+        for (AccountsMsgDto accountsMsgDto : batch) {
+            try {
+                Pending message = new Pending(toMimeMessage(accountsMsgDto), new CompletableFuture<>());
+                messages.add(message);
+                results.add(message.result());
+            } catch (MessagingException e) {
+                // e.g. an invalid address, fails only its own message
+                results.add(CompletableFuture.failedFuture(e));
+            }
+        }
+        if (!messages.isEmpty()) {
+            deliver(messages);
+        }
+        return results;
+    }
+
+    private void flush() {
+        List<Pending> batch;
+        synchronized (pending) {
+            flushScheduled = false;
+            batch = drain();
+        }
+        if (!batch.isEmpty()) {
+            deliver(batch);
+        }
+    }
+
+    private List<Pending> drain() {
+        List<Pending> batch = new ArrayList<>(pending);
+        pending.clear();
+        return batch;
+    }
+
+    private void deliver(List<Pending> batch) {
+        executor.execute(() -> {
+            try {
+                mailSender.send(batch.stream().map(Pending::message).toArray(MimeMessage[]::new));
+                batch.forEach(p -> p.result().complete(null));
+            } catch (MailSendException e) {
+                // partial failure: only the listed messages failed
+                Map<Object, Exception> failed = e.getFailedMessages();
+                batch.forEach(p -> {
+                    Exception cause = failed.get(p.message());
+                    if (cause != null || failed.isEmpty()) {
+                        p.result().completeExceptionally(cause != null ? cause : e);
+                    } else {
+                        p.result().complete(null);
+                    }
+                });
+            } catch (RuntimeException e) {
+                batch.forEach(p -> p.result().completeExceptionally(e));
+            }
+            log.debug("Delivered {} emails in one SMTP session", batch.size());
+        });
+    }
+
+    private MimeMessage toMimeMessage(AccountsMsgDto accountsMsgDto) throws MessagingException {
+        MimeMessage message = mailSender.createMimeMessage();
+        MimeMessageHelper helper = new MimeMessageHelper(message, "UTF-8");
+        helper.setFrom(properties.getFrom());
+        helper.setTo(accountsMsgDto.email());
+        helper.setSubject("Welcome to TrelaBank");
+        helper.setText("Hello " + accountsMsgDto.name() + ", your account " + accountsMsgDto.accountNumber() + " is ready.");
+        return message;
+    }
+
+    @Override
+    public void close() {
+        timer.shutdownNow();
+        executor.close();
+    }
+
+    private record Pending(MimeMessage message, CompletableFuture<Void> result) {
+    }
+}
@@ -0,0 +1,69 @@
+package dev.trela.message.provider;
+
+import dev.trela.message.dto.AccountsMsgDto;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// In-process provider for offline throughput tests: completes after latency +- jitter and fails
+// the configured share of sends. Timers only, no thread is held while a send is "in flight".
+@Slf4j
+public class StubProvider implements NotificationProvider, AutoCloseable {
+
+    private final ProviderProperties.Stub properties;
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("stub-provider").daemon().factory());
+
+    public StubProvider(ProviderProperties.Stub properties) {
+        this.properties = properties;
+    }
+
+    @Override
+    public String name() {
+        return "stub";
+    }
+
+    @Override
+    public CompletableFuture<Void> send(AccountsMsgDto accountsMsgDto) {
+        return complete(1).get(0);
+    }
+
+    @Override
+    public List<CompletableFuture<Void>> sendBatch(List<AccountsMsgDto> batch) {
+        return complete(batch.size());
+    }
+
+    // one round trip for all messages, each of them failing on its own like a partial failure
+    private List<CompletableFuture<Void>> complete(int messages) {
+        List<CompletableFuture<Void>> results = new ArrayList<>(messages);
+        for (int i = 0; i < messages; i++) {
+            results.add(new CompletableFuture<>());
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long jitter = properties.getJitter().toNanos();
+        long delay = Math.max(0, properties.getLatency().toNanos() + (jitter > 0 ? random.nextLong(-jitter, jitter) : 0));
+        timer.schedule(() -> {
+            ThreadLocalRandom outcome = ThreadLocalRandom.current();
+            results.forEach(result -> {
+                if (outcome.nextDouble() < properties.getFailureRate()) {
+                    result.completeExceptionally(new IllegalStateException("Injected stub failure"));
+                } else {
+                    result.complete(null);
+                }
+            });
+            log.debug("Stub handled {} notifications", messages);
+        }, delay, TimeUnit.NANOSECONDS);
+        return results;
+    }
+
+    @Override
+    public void close() {
+        timer.shutdownNow();
+    }
+}
@@ -0,0 +1,204 @@
+package dev.trela.message.provider;
+
+import dev.trela.message.dto.AccountsMsgDto;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+// Caps a provider at maxConcurrency calls in flight (a batch is one call) and ratePerSecond
+// messages (a batch costs one permit per message). Calls over the cap wait in a queue of at most
+// maxQueued instead of blocking a thread, beyond that they fail straight away; a call that is
+// within the concurrency cap but over the rate starts when its tokens are due. Cancelling the
+// returned future drops a call that has not started and cancels the provider's future of one
+// that has - whether that stops a request already on the wire is up to the provider.
+public class ThrottledProvider implements NotificationProvider {
+
+    private final NotificationProvider delegate;
+    private final ScheduledExecutorService timer;
+    private final MeterRegistry meterRegistry;
+    private final int maxConcurrency;
+    private final int maxQueued;
+    private final long nanosPerPermit;
+    private final long burstNanos;
+    private final Queue<Pending> waiting = new ArrayDeque<>();
+    private int inFlight;
+    private long nextFree = System.nanoTime();
+
+    public ThrottledProvider(NotificationProvider delegate, ProviderProperties.Throttle throttle,
+                             ScheduledExecutorService timer, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.timer = timer;
+        this.meterRegistry = meterRegistry;
+        this.maxConcurrency = throttle.getMaxConcurrency();
+        this.maxQueued = throttle.getMaxQueued();
+        this.nanosPerPermit = (long) (TimeUnit.SECONDS.toNanos(1) / throttle.getRatePerSecond());
+        this.burstNanos = throttle.getBurst().toNanos();
+        Gauge.builder("message.provider.queued", this, ThrottledProvider::queued)
+                .tag("provider", delegate.name()).register(meterRegistry);
+        Gauge.builder("message.provider.inflight", this, ThrottledProvider::inFlight)
+                .tag("provider", delegate.name()).register(meterRegistry);
+    }
+
+    @Override
+    public String name() {
+        return delegate.name();
+    }
+
+    @Override
+    public CompletableFuture<Void> send(AccountsMsgDto accountsMsgDto) {
+        return submit(1, () -> delegate.send(accountsMsgDto));
+    }
+
+    @Override
+    public List<CompletableFuture<Void>> sendBatch(List<AccountsMsgDto> batch) {
+        // the batch is one call to the throttle, which completes once every message has its outcome
+        AtomicReference<List<CompletableFuture<Void>>> sent = new AtomicReference<>();
+        CompletableFuture<Void> call = submit(batch.size(), () -> {
+            List<CompletableFuture<Void>> sends = delegate.sendBatch(batch);
+            sent.set(sends);
+            CompletableFuture<Void> all = CompletableFuture.allOf(sends.toArray(CompletableFuture[]::new));
+            all.whenComplete((ignored, error) -> {
+                if (all.isCancelled()) {
+                    sends.forEach(send -> send.cancel(true));
+                }
+            });
+            return all;
+        });
+        List<CompletableFuture<Void>> results = batch.stream().map(accountsMsgDto -> new CompletableFuture<Void>()).toList();
+        call.whenComplete((ignored, error) -> {
+            List<CompletableFuture<Void>> sends = sent.get();
+            for (int i = 0; i < results.size(); i++) {
+                CompletableFuture<Void> result = results.get(i);
+                if (sends == null || call.isCancelled()) {
+                    // rejected, cancelled or failed before the provider got the batch
+                    result.completeExceptionally(error);
+                } else {
+                    sends.get(i).whenComplete((done, sendError) -> {
+                        if (sendError == null) {
+                            result.complete(null);
+                        } else {
+                            result.completeExceptionally(sendError);
+                        }
+                    });
+                }
+            }
+        });
+        // cancelling any message cancels the call, the provider cannot drop part of a batch
+        results.forEach(result -> result.whenComplete((ignored, error) -> {
+            if (result.isCancelled()) {
+                call.cancel(true);
+            }
+        }));
+        return results;
+    }
+
+    private CompletableFuture<Void> submit(int permits, Supplier<CompletableFuture<Void>> call) {
+        CompletableFuture<Void> result = new CompletableFuture<>();
+        synchronized (this) {
+            if (waiting.size() >= maxQueued) {
+                meterRegistry.counter("message.provider.rejected", "provider", delegate.name()).increment();
+                result.completeExceptionally(new RejectedExecutionException(
+                        "Provider " + delegate.name() + " has " + maxQueued + " calls queued"));
+                return result;
+            }
+            Pending pending = new Pending(permits, call, result);
+            waiting.add(pending);
+            result.whenComplete((ignored, error) -> {
+                if (result.isCancelled()) {
+                    dequeue(pending);
+                }
+            });
+        }
+        drain();
+        return result;
+    }
+
+    private void drain() {
+        while (true) {
+            Pending next;
+            long delay;
+            synchronized (this) {
+                if (inFlight >= maxConcurrency || waiting.isEmpty()) {
+                    return;
+                }
+                next = waiting.poll();
+                if (next.result().isDone()) {
+                    // cancelled while queued and not dequeued yet, costs neither a slot nor rate
+                    continue;
+                }
+                inFlight++;
+                long now = System.nanoTime();
+                long start = Math.max(nextFree, now - burstNanos);
+                delay = Math.max(0, start - now);
+                nextFree = start + next.permits() * nanosPerPermit;
+            }
+            if (delay == 0) {
+                start(next);
+            } else {
+                timer.schedule(() -> start(next), delay, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+
+    private void start(Pending pending) {
+        if (pending.result().isDone()) {
+            // cancelled while waiting for its rate
+            synchronized (this) {
+                inFlight--;
+            }
+            drain();
+            return;
+        }
+        Timer.Sample sample = Timer.start(meterRegistry);
+        CompletableFuture<Void> call;
+        try {
+            call = pending.call().get();
+        } catch (RuntimeException e) {
+            call = CompletableFuture.failedFuture(e);
+        }
+        CompletableFuture<Void> started = call;
+        pending.result().whenComplete((ignored, error) -> {
+            if (pending.result().isCancelled()) {
+                started.cancel(true);
+            }
+        });
+        call.whenComplete((ignored, error) -> {
+            sample.stop(meterRegistry.timer("message.provider.send", "provider", delegate.name(),
+                    "result", error == null ? "success" : "failure"));
+            synchronized (this) {
+                inFlight--;
+            }
+            if (error == null) {
+                pending.result().complete(null);
+            } else {
+                pending.result().completeExceptionally(error);
+            }
+            drain();
+        });
+    }
+
+    private synchronized void dequeue(Pending pending) {
+        waiting.remove(pending);
+    }
+
+    private synchronized int queued() {
+        return waiting.size();
+    }
+
+    private synchronized int inFlight() {
+        return inFlight;
+    }
+
+    private record Pending(int permits, Supplier<CompletableFuture<Void>> call, CompletableFuture<Void> result) {
+    }
+}
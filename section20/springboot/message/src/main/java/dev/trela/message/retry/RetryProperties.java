@@ -0,0 +1,17 @@
+package dev.trela.message.retry;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.List;
+
+@Data
+@ConfigurationProperties(prefix = "trelabank.message.retry")
+public class RetryProperties {
+
+    // delay of retry tier 1..3 (topics send-communication-retry-1..3)
+    private List<Duration> delays = List.of(Duration.ofSeconds(1), Duration.ofSeconds(30), Duration.ofMinutes(5));
+    private String topicPrefix = "send-communication-retry-";
+    private String deadLetterTopic = "send-communication-dlq";
+}
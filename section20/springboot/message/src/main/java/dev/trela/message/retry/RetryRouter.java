@@ -0,0 +1,116 @@
+package dev.trela.message.retry;
+
+import dev.trela.message.dispatch.DispatchFailedException;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cloud.stream.function.StreamBridge;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeTypeUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+// Moves a failed send-communication record to the next retry tier, or to the dead letter topic
+// once every tier was tried, instead of retrying it where it blocks its partition.
+// The headers travel with the record: attempt count, first delivery time, where it came from,
+// and the channels that already went out, so that no later attempt on any instance sends them again.
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class RetryRouter {
+
+    public static final String ATTEMPT = "trelabank-attempt";
+    public static final String ORIGINAL_TIMESTAMP = "trelabank-original-timestamp";
+    public static final String ORIGINAL_TOPIC = "trelabank-original-topic";
+    public static final String LAST_ERROR = "trelabank-last-error";
+    public static final String DELIVERED_CHANNELS = "trelabank-delivered-channels";
+
+    private final StreamBridge streamBridge;
+    private final RetryProperties properties;
+    private final MeterRegistry meterRegistry;
+
+    // `failed` is the record as consumed (any payload type); ATTEMPT counts the failed attempts
+    public void forward(Message<?> failed, Throwable error) {
+        MessageHeaders headers = failed.getHeaders();
+        int attempt = (int) longHeader(headers, ATTEMPT, 0) + 1;
+        long originalTimestamp = longHeader(headers, ORIGINAL_TIMESTAMP,
+                longHeader(headers, KafkaHeaders.RECEIVED_TIMESTAMP, System.currentTimeMillis()));
+        String originalTopic = stringHeader(headers, ORIGINAL_TOPIC, stringHeader(headers, KafkaHeaders.RECEIVED_TOPIC, "unknown"));
+        Set<String> delivered = new TreeSet<>(deliveredChannels(headers));
+        if (causeOf(error, DispatchFailedException.class) instanceof DispatchFailedException failedDispatch) {
+            delivered.addAll(failedDispatch.getResult().succeededChannels());
+        }
+        String destination = attempt <= properties.getDelays().size()
+                ? properties.getTopicPrefix() + attempt
+                : properties.getDeadLetterTopic();
+
+        Message<?> next = MessageBuilder.withPayload(failed.getPayload())
+                .setHeader(MessageHeaders.CONTENT_TYPE, MimeTypeUtils.APPLICATION_JSON_VALUE)
+                .setHeader(ATTEMPT, String.valueOf(attempt))
+                .setHeader(ORIGINAL_TIMESTAMP, String.valueOf(originalTimestamp))
+                .setHeader(ORIGINAL_TOPIC, originalTopic)
+                .setHeader(LAST_ERROR, String.valueOf(rootCause(error).getMessage()))
+                .setHeader(DELIVERED_CHANNELS, String.join(",", delivered))
+                .build();
+        if (!streamBridge.send(destination, next)) {
+            // the caller rethrows, so the record is redelivered rather than lost
+            throw new IllegalStateException("Could not forward failed record to " + destination, error);
+        }
+        meterRegistry.counter("message.retry.forwarded", "destination", destination).increment();
+        log.warn("Attempt {} failed ({}), moved to {}", attempt, rootCause(error).getMessage(), destination);
+    }
+
+    public static Set<String> deliveredChannels(MessageHeaders headers) {
+        String value = stringHeader(headers, DELIVERED_CHANNELS, "");
+        return Arrays.stream(value.split(","))
+                .map(String::trim)
+                .filter(channel -> !channel.isEmpty())
+                .collect(Collectors.toSet());
+    }
+
+    public static long longHeader(MessageHeaders headers, String name, long defaultValue) {
+        String value = stringHeader(headers, name, null);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    // Kafka headers we did not write ourselves arrive as raw bytes
+    public static String stringHeader(MessageHeaders headers, String name, String defaultValue) {
+        Object value = headers.get(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        return value instanceof byte[] bytes ? new String(bytes, StandardCharsets.UTF_8) : value.toString();
+    }
+
+    private static Throwable causeOf(Throwable error, Class<? extends Throwable> type) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause() == cause ? null : cause.getCause()) {
+            if (type.isInstance(cause)) {
+                return cause;
+            }
+        }
+        return null;
+    }
+
+    private static Throwable rootCause(Throwable error) {
+        Throwable cause = error;
+        while (cause.getCause() != null && cause.getCause() != cause) {
+            cause = cause.getCause();
+        }
+        return cause;
+    }
+}
@@ -0,0 +1,73 @@
+package dev.trela.message.dedup;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TimeWindowedBloomFilterTest {
+
+	private static final Duration WINDOW = Duration.ofHours(24);
+
+	private final AtomicLong clock = new AtomicLong();
+	private final TimeWindowedBloomFilter filter = new TimeWindowedBloomFilter(1_000, 0.01, WINDOW, clock::get);
+
+	@Test
+	void remembersKeyForAtLeastOneAndAtMostTwoWindows() {
+		filter.put("account-created:1001:email");
+
+		advance(WINDOW.minusSeconds(1));
+		assertThat(filter.mightContain("account-created:1001:email")).isTrue();
+
+		// first rotation: the key moved to the previous generation
+		advance(Duration.ofSeconds(1));
+		assertThat(filter.mightContain("account-created:1001:email")).isTrue();
+
+		// second rotation: its generation was cleared
+		advance(WINDOW);
+		assertThat(filter.mightContain("account-created:1001:email")).isFalse();
+	}
+
+	@Test
+	void keyAddedAfterRotationSurvivesTheNextOne() {
+		advance(WINDOW);
+		filter.put("account-created:1001:sms");
+
+		advance(WINDOW);
+		assertThat(filter.mightContain("account-created:1001:sms")).isTrue();
+	}
+
+	@Test
+	void falsePositiveRateStaysNearConfiguredRate() {
+		TimeWindowedBloomFilter full = new TimeWindowedBloomFilter(10_000, 0.01, WINDOW, clock::get);
+		for (int i = 0; i < 10_000; i++) {
+			full.put("account-created:" + i + ":email");
+		}
+
+		int falsePositives = 0;
+		int probes = 100_000;
+		for (int i = 0; i < probes; i++) {
+			if (full.mightContain("account-created:" + (1_000_000 + i) + ":email")) {
+				falsePositives++;
+			}
+		}
+
+		assertThat((double) falsePositives / probes).isLessThan(0.02);
+	}
+
+	@Test
+	void neverReportsAnInsertedKeyAsMissing() {
+		for (int i = 0; i < 1_000; i++) {
+			filter.put("account-created:" + i + ":sms");
+		}
+		for (int i = 0; i < 1_000; i++) {
+			assertThat(filter.mightContain("account-created:" + i + ":sms")).isTrue();
+		}
+	}
+
+	private void advance(Duration duration) {
+		clock.addAndGet(duration.toNanos());
+	}
+}
@@ -0,0 +1,58 @@
+package dev.trela.message.dedup;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TimeWindowedKeySetTest {
+
+	private static final Duration WINDOW = Duration.ofHours(24);
+
+	private final AtomicLong clock = new AtomicLong();
+
+	@Test
+	void forgetsKeysAfterTwoRotations() {
+		TimeWindowedKeySet keys = new TimeWindowedKeySet(100, WINDOW, clock::get);
+		keys.add(42);
+
+		clock.addAndGet(WINDOW.toNanos());
+		assertThat(keys.contains(42)).isTrue();
+
+		clock.addAndGet(WINDOW.toNanos());
+		assertThat(keys.contains(42)).isFalse();
+	}
+
+	@Test
+	void countsKeysDroppedByAFullGenerationUntilItExpires() {
+		TimeWindowedKeySet keys = new TimeWindowedKeySet(2, WINDOW, clock::get);
+
+		assertThat(keys.add(1)).isTrue();
+		assertThat(keys.add(2)).isTrue();
+		assertThat(keys.add(2)).isTrue();
+		assertThat(keys.add(3)).isFalse();
+		assertThat(keys.contains(3)).isFalse();
+		assertThat(keys.dropped()).isEqualTo(1);
+
+		clock.addAndGet(WINDOW.toNanos());
+		assertThat(keys.add(3)).isTrue();
+		assertThat(keys.dropped()).isEqualTo(1);
+
+		clock.addAndGet(WINDOW.toNanos());
+		assertThat(keys.dropped()).isZero();
+	}
+
+	@Test
+	void holdsAFullWindowOfFingerprints() {
+		TimeWindowedKeySet keys = new TimeWindowedKeySet(10_000, WINDOW, clock::get);
+		for (int i = 0; i < 10_000; i++) {
+			assertThat(keys.add(TimeWindowedBloomFilter.fingerprint("account-created:" + i + ":email"))).isTrue();
+		}
+
+		assertThat(keys.size()).isEqualTo(10_000);
+		assertThat(keys.contains(TimeWindowedBloomFilter.fingerprint("account-created:0:email"))).isTrue();
+		assertThat(keys.contains(TimeWindowedBloomFilter.fingerprint("account-created:10000:email"))).isFalse();
+	}
+}
@@ -0,0 +1,92 @@
+package dev.trela.message.ordering;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class KeyOrderedExecutorTest {
+
+	@Test
+	void runsTasksOfOneKeyInSubmissionOrder() throws InterruptedException {
+		KeyOrderedExecutor executor = new KeyOrderedExecutor(100, new SimpleMeterRegistry());
+		List<Integer> seen = new CopyOnWriteArrayList<>();
+		CountDownLatch done = new CountDownLatch(50);
+
+		for (int i = 0; i < 50; i++) {
+			int n = i;
+			executor.submit("1001", () -> {
+				seen.add(n);
+				done.countDown();
+			});
+		}
+
+		assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+		assertThat(seen).isSorted().hasSize(50);
+	}
+
+	@Test
+	void slowKeyDoesNotHoldBackOtherKeys() throws InterruptedException {
+		KeyOrderedExecutor executor = new KeyOrderedExecutor(100, new SimpleMeterRegistry());
+		CountDownLatch release = new CountDownLatch(1);
+		CountDownLatch otherDone = new CountDownLatch(1);
+
+		executor.submit("1001", () -> await(release));
+		executor.submit("2002", otherDone::countDown);
+
+		assertThat(otherDone.await(5, TimeUnit.SECONDS)).isTrue();
+		release.countDown();
+	}
+
+	@Test
+	void submitBlocksWhileMaxPendingAreOutstanding() throws InterruptedException {
+		KeyOrderedExecutor executor = new KeyOrderedExecutor(2, new SimpleMeterRegistry());
+		CountDownLatch release = new CountDownLatch(1);
+		executor.submit("1001", () -> await(release));
+		executor.submit("2002", () -> await(release));
+
+		AtomicBoolean accepted = new AtomicBoolean();
+		Thread producer = Thread.ofVirtual().start(() -> {
+			try {
+				executor.submit("3003", () -> { });
+				accepted.set(true);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		});
+
+		producer.join(300);
+		assertThat(accepted).isFalse();
+
+		release.countDown();
+		producer.join(5000);
+		assertThat(accepted).isTrue();
+	}
+
+	@Test
+	void failingTaskReleasesItsSlotAndKeepsTheKeyDraining() throws InterruptedException {
+		KeyOrderedExecutor executor = new KeyOrderedExecutor(1, new SimpleMeterRegistry());
+		CountDownLatch next = new CountDownLatch(1);
+
+		executor.submit("1001", () -> {
+			throw new IllegalStateException("boom");
+		});
+		executor.submit("1001", next::countDown);
+
+		assertThat(next.await(5, TimeUnit.SECONDS)).isTrue();
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await(5, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,21 @@
+package dev.trela.common.deadline;
+
+import java.util.concurrent.TimeUnit;
+
+// Point in time after which the caller no longer waits for our answer.
+public record Deadline(long expiresAtNanos) {
+
+    public static final String HEADER = "trelabank-deadline-ms";
+
+    public static Deadline afterMillis(long millis) {
+        return new Deadline(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+
+    public long remainingMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(expiresAtNanos - System.nanoTime());
+    }
+
+    public boolean isExpired() {
+        return expiresAtNanos - System.nanoTime() <= 0;
+    }
+}
@@ -0,0 +1,11 @@
+package dev.trela.common.deadline;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(value = HttpStatus.GATEWAY_TIMEOUT)
+public class DeadlineExceededException extends RuntimeException {
+    public DeadlineExceededException(String operation) {
+        super(String.format("Request deadline exceeded before %s", operation));
+    }
+}
@@ -0,0 +1,46 @@
+package dev.trela.common.deadline;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+// Reads the remaining time budget sent by the gateway (or an upstream service) and exposes it
+// through RequestDeadlineHolder for the rest of the request.
+@Slf4j
+public class DeadlineFilter extends OncePerRequestFilter {
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String header = request.getHeader(Deadline.HEADER);
+        if (header == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        long remainingMillis;
+        try {
+            remainingMillis = Long.parseLong(header.trim());
+        } catch (NumberFormatException e) {
+            log.debug("Ignoring malformed {} header: {}", Deadline.HEADER, header);
+            filterChain.doFilter(request, response);
+            return;
+        }
+        if (remainingMillis <= 0) {
+            log.debug("Rejecting {} {} - deadline already expired", request.getMethod(), request.getRequestURI());
+            response.sendError(HttpStatus.GATEWAY_TIMEOUT.value(), "Request deadline exceeded");
+            return;
+        }
+        RequestDeadlineHolder.set(Deadline.afterMillis(remainingMillis));
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            RequestDeadlineHolder.clear();
+        }
+    }
+}
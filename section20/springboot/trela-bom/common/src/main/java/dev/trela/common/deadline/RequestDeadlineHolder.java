@@ -0,0 +1,38 @@
+package dev.trela.common.deadline;
+
+import java.util.Optional;
+
+// Deadline of the request being served by the current thread, set by DeadlineFilter.
+public final class RequestDeadlineHolder {
+
+    private static final ThreadLocal<Deadline> DEADLINE = new ThreadLocal<>();
+
+    private RequestDeadlineHolder() {
+    }
+
+    public static void set(Deadline deadline) {
+        DEADLINE.set(deadline);
+    }
+
+    public static Optional<Deadline> get() {
+        return Optional.ofNullable(DEADLINE.get());
+    }
+
+    // remaining budget to forward downstream, null when the request carries no deadline
+    public static Long remainingMillis() {
+        Deadline deadline = DEADLINE.get();
+        return deadline == null ? null : Math.max(0, deadline.remainingMillis());
+    }
+
+    public static void clear() {
+        DEADLINE.remove();
+    }
+
+    // call before DB work or downstream calls - there is no point starting them for a caller that gave up
+    public static void checkNotExpired(String operation) {
+        Deadline deadline = DEADLINE.get();
+        if (deadline != null && deadline.isExpired()) {
+            throw new DeadlineExceededException(operation);
+        }
+    }
+}
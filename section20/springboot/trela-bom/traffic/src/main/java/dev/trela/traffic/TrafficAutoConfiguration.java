@@ -0,0 +1,44 @@
+package dev.trela.traffic;
+
+import dev.trela.traffic.loadbalancer.InstanceStatsLifecycle;
+import dev.trela.traffic.loadbalancer.InstanceStatsRegistry;
+import dev.trela.traffic.timeout.AdaptiveTimeouts;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.context.annotation.Bean;
+
+import java.time.Duration;
+
+@AutoConfiguration
+public class TrafficAutoConfiguration {
+
+    @Bean
+    @ConditionalOnMissingBean
+    public InstanceStatsRegistry instanceStatsRegistry(ObjectProvider<MeterRegistry> meterRegistry,
+                                                       @Value("${trelabank.loadbalancer.latency-decay:10s}") Duration decay,
+                                                       @Value("${trelabank.loadbalancer.stats-sweep-interval:30s}") Duration sweepInterval) {
+        return new InstanceStatsRegistry(meterRegistry.getIfAvailable(SimpleMeterRegistry::new), decay, sweepInterval);
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public AdaptiveTimeouts adaptiveTimeouts(ObjectProvider<MeterRegistry> meterRegistry,
+                                             @Value("${trelabank.timeout.multiplier:3}") double multiplier,
+                                             @Value("${trelabank.timeout.min:200ms}") Duration min,
+                                             @Value("${trelabank.timeout.max:4s}") Duration max,
+                                             @Value("${trelabank.timeout.window:10s}") Duration window,
+                                             @Value("${trelabank.timeout.min-samples:100}") long minSamples) {
+        return new AdaptiveTimeouts(meterRegistry.getIfAvailable(SimpleMeterRegistry::new),
+                new AdaptiveTimeouts.Settings(multiplier, min, max, window, minSamples));
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public InstanceStatsLifecycle instanceStatsLifecycle(InstanceStatsRegistry instanceStatsRegistry) {
+        return new InstanceStatsLifecycle(instanceStatsRegistry);
+    }
+}
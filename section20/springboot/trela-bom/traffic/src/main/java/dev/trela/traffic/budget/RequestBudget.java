@@ -0,0 +1,39 @@
+package dev.trela.traffic.budget;
+
+// Token bucket refilled by regular traffic: every request deposits `ratio` tokens and every
+// extra attempt (retry, hedge) spends one, so extra load stays below ratio * recent requests
+// no matter how badly upstream behaves. The caller picks the initial fill: full lets a cold
+// client retry straight away, empty means extra attempts have to be earned first.
+public class RequestBudget {
+
+    private final double ratio;
+    private final double maxTokens;
+    private double tokens;
+
+    public RequestBudget(double ratio, double maxTokens, double initialTokens) {
+        this.ratio = ratio;
+        this.maxTokens = maxTokens;
+        this.tokens = Math.min(maxTokens, initialTokens);
+    }
+
+    public synchronized void deposit() {
+        tokens = Math.min(maxTokens, tokens + ratio);
+    }
+
+    public synchronized boolean tryWithdraw() {
+        if (tokens >= 1) {
+            tokens -= 1;
+            return true;
+        }
+        return false;
+    }
+
+    // give back a token that was withdrawn but not used
+    public synchronized void refund() {
+        tokens = Math.min(maxTokens, tokens + 1);
+    }
+
+    public synchronized double getTokens() {
+        return tokens;
+    }
+}
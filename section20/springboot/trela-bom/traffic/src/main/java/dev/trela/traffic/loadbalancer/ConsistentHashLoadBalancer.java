@@ -0,0 +1,129 @@
+package dev.trela.traffic.loadbalancer;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.DefaultResponse;
+import org.springframework.cloud.client.loadbalancer.EmptyResponse;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.client.loadbalancer.RequestData;
+import org.springframework.cloud.client.loadbalancer.RequestDataContext;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.loadbalancer.core.NoopServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.core.ReactorServiceInstanceLoadBalancer;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Comparator;
+import java.util.List;
+
+// Sticky routing: the same customer (trelabank-routing-key header, else the mobileNumber query
+// parameter) always lands on the same instance, so per-instance caches see all of its traffic.
+// Rendezvous hashing - each instance scores hash(key, instance) and the highest score wins -
+// only moves the keys of an instance that joins or leaves. Bounded loads: an instance above
+// loadFactor * the average outstanding requests is skipped for the next one in score order.
+// Requests without a key fall back to the peak EWMA balancer.
+@Slf4j
+public class ConsistentHashLoadBalancer implements ReactorServiceInstanceLoadBalancer {
+
+    public static final String ROUTING_KEY_HEADER = "trelabank-routing-key";
+    public static final String ROUTING_KEY_PARAM = "mobileNumber";
+
+    private final ObjectProvider<ServiceInstanceListSupplier> serviceInstanceListSupplierProvider;
+    private final String serviceId;
+    private final InstanceStatsRegistry statsRegistry;
+    private final double loadFactor;
+    private final PeakEwmaLoadBalancer fallback;
+
+    public ConsistentHashLoadBalancer(ObjectProvider<ServiceInstanceListSupplier> serviceInstanceListSupplierProvider,
+                                      String serviceId, InstanceStatsRegistry statsRegistry, double loadFactor) {
+        this.serviceInstanceListSupplierProvider = serviceInstanceListSupplierProvider;
+        this.serviceId = serviceId;
+        this.statsRegistry = statsRegistry;
+        this.loadFactor = loadFactor;
+        this.fallback = new PeakEwmaLoadBalancer(serviceInstanceListSupplierProvider, serviceId, statsRegistry);
+    }
+
+    @Override
+    public Mono<Response<ServiceInstance>> choose(Request request) {
+        String key = routingKey(request);
+        if (key == null) {
+            return fallback.choose(request);
+        }
+        ServiceInstanceListSupplier supplier = serviceInstanceListSupplierProvider
+                .getIfAvailable(NoopServiceInstanceListSupplier::new);
+        statsRegistry.sweepIfDue(serviceId, supplier);
+        return supplier.get(request).next().map(instances -> choose(key, instances));
+    }
+
+    private Response<ServiceInstance> choose(String key, List<ServiceInstance> instances) {
+        if (instances.isEmpty()) {
+            log.warn("No servers available for service: {}", serviceId);
+            return new EmptyResponse();
+        }
+        long keyHash = hash(key);
+        List<ServiceInstance> ranked = instances.stream()
+                .sorted(Comparator.comparingLong((ServiceInstance instance) -> score(keyHash, instance)).reversed())
+                .toList();
+
+        int totalOutstanding = 0;
+        for (ServiceInstance instance : ranked) {
+            totalOutstanding += statsRegistry.get(instance).getOutstanding();
+        }
+        double capacity = Math.ceil(loadFactor * (totalOutstanding + 1) / ranked.size());
+
+        ServiceInstance chosen = ranked.get(0);
+        for (ServiceInstance instance : ranked) {
+            if (statsRegistry.get(instance).getOutstanding() + 1 <= capacity) {
+                chosen = instance;
+                break;
+            }
+        }
+        if (chosen != ranked.get(0)) {
+            statsRegistry.recordSpillover(serviceId);
+        }
+        statsRegistry.recordSelection(serviceId, chosen);
+        return new DefaultResponse(chosen);
+    }
+
+    private String routingKey(Request request) {
+        if (!(request.getContext() instanceof RequestDataContext context) || context.getClientRequest() == null) {
+            return null;
+        }
+        RequestData data = context.getClientRequest();
+        String header = data.getHeaders() != null ? data.getHeaders().getFirst(ROUTING_KEY_HEADER) : null;
+        if (header != null && !header.isBlank()) {
+            return header;
+        }
+        if (data.getUrl() == null || data.getUrl().getRawQuery() == null) {
+            return null;
+        }
+        return UriComponentsBuilder.fromUri(data.getUrl()).build().getQueryParams().getFirst(ROUTING_KEY_PARAM);
+    }
+
+    private static long score(long keyHash, ServiceInstance instance) {
+        return mix(keyHash ^ hash(instance.getHost() + ":" + instance.getPort()));
+    }
+
+    // FNV-1a, good enough spread for short keys and cheap to compute
+    private static long hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b;
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    // murmur3 finalizer so that keys differing in one bit still rank instances independently
+    private static long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        value *= 0xc4ceb93fe53e94c9L;
+        value ^= value >>> 33;
+        return value;
+    }
+}
@@ -0,0 +1,61 @@
+package dev.trela.traffic.loadbalancer;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Peak EWMA of latency plus outstanding requests for one service instance.
+// A slower sample replaces the average straight away, faster samples decay it over `decayNanos`,
+// so a pod that starts stalling is penalised immediately and forgiven gradually.
+public class InstanceStats {
+
+    private final long decayNanos;
+    private final AtomicInteger outstanding = new AtomicInteger();
+    // guarded by this
+    private double ewmaNanos;
+    private long lastSampleNanos;
+
+    public InstanceStats(long decayNanos) {
+        this.decayNanos = decayNanos;
+    }
+
+    public void start() {
+        outstanding.incrementAndGet();
+    }
+
+    // latency <= 0 means the caller could not time the request, only the outstanding count changes
+    public void complete(long latencyNanos) {
+        // never below zero, a completion may land on stats recreated after an eviction
+        outstanding.updateAndGet(n -> Math.max(0, n - 1));
+        if (latencyNanos > 0) {
+            record(latencyNanos);
+        }
+    }
+
+    public synchronized void record(long latencyNanos) {
+        long now = System.nanoTime();
+        if (ewmaNanos == 0 || latencyNanos > ewmaNanos) {
+            ewmaNanos = latencyNanos;
+        } else {
+            double weight = Math.exp(-(double) (now - lastSampleNanos) / decayNanos);
+            ewmaNanos = ewmaNanos * weight + latencyNanos * (1 - weight);
+        }
+        lastSampleNanos = now;
+    }
+
+    public synchronized double getEwmaNanos() {
+        return ewmaNanos;
+    }
+
+    public int getOutstanding() {
+        return outstanding.get();
+    }
+
+    // lower is better; instances without history borrow the latency of the instance they are compared with
+    public double cost(double unknownLatencyNanos) {
+        double latency = getEwmaNanos();
+        return (latency == 0 ? unknownLatencyNanos : latency) * (getOutstanding() + 1);
+    }
+
+    public double getScore() {
+        return cost(0);
+    }
+}
@@ -0,0 +1,106 @@
+package dev.trela.traffic.loadbalancer;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+// Stats shared by every client of the application (gateway routes, Feign clients, WebClients).
+// Instances that drop out of discovery are evicted together with their meters, at most once per
+// sweepInterval per service, so pod churn does not grow the registry or the metrics forever.
+@Slf4j
+public class InstanceStatsRegistry {
+
+    private static final String SELECTIONS = "trelabank.loadbalancer.selections";
+
+    private final MeterRegistry meterRegistry;
+    private final long decayNanos;
+    private final long sweepIntervalNanos;
+    private final Map<String, Tracked> stats = new ConcurrentHashMap<>();
+    private final Map<String, Long> lastSweeps = new ConcurrentHashMap<>();
+
+    public InstanceStatsRegistry(MeterRegistry meterRegistry, Duration decay, Duration sweepInterval) {
+        this.meterRegistry = meterRegistry;
+        this.decayNanos = decay.toNanos();
+        this.sweepIntervalNanos = sweepInterval.toNanos();
+    }
+
+    public InstanceStats get(ServiceInstance instance) {
+        return stats.computeIfAbsent(key(instance), key -> register(instance)).stats();
+    }
+
+    public void recordSelection(String serviceId, ServiceInstance instance) {
+        meterRegistry.counter(SELECTIONS, "service", serviceId, "instance", address(instance)).increment();
+    }
+
+    // consistent hashing had to skip the preferred instance because it was overloaded
+    public void recordSpillover(String serviceId) {
+        meterRegistry.counter("trelabank.loadbalancer.spillovers", "service", serviceId).increment();
+    }
+
+    // get() of the supplier lists every instance; get(request) may be filtered (by version, zone...)
+    public void sweepIfDue(String serviceId, ServiceInstanceListSupplier supplier) {
+        long now = System.nanoTime();
+        Long last = lastSweeps.putIfAbsent(serviceId, now);
+        if (last != null && (now - last < sweepIntervalNanos || !lastSweeps.replace(serviceId, last, now))) {
+            return;
+        }
+        supplier.get().next().subscribe(instances -> retain(serviceId, instances),
+                error -> log.debug("Could not list the instances of {} to evict stale stats", serviceId, error));
+    }
+
+    // evicts the stats of serviceId's instances that are not listed; instances with requests still
+    // outstanding are kept until a later sweep, so their completions are not lost
+    public void retain(String serviceId, Collection<ServiceInstance> instances) {
+        Set<String> current = instances.stream().map(InstanceStatsRegistry::key).collect(Collectors.toSet());
+        stats.forEach((key, tracked) -> {
+            if (!tracked.serviceId().equalsIgnoreCase(serviceId) || current.contains(key)
+                    || tracked.stats().getOutstanding() > 0 || !stats.remove(key, tracked)) {
+                return;
+            }
+            log.debug("Evicting stats of {}", key);
+            tracked.meters().forEach(meterRegistry::remove);
+            meterRegistry.find(SELECTIONS).tags("service", serviceId, "instance", tracked.address()).meters()
+                    .forEach(meterRegistry::remove);
+        });
+    }
+
+    private Tracked register(ServiceInstance instance) {
+        InstanceStats instanceStats = new InstanceStats(decayNanos);
+        String serviceId = String.valueOf(instance.getServiceId());
+        String address = address(instance);
+        List<Meter> meters = List.of(
+                Gauge.builder("trelabank.loadbalancer.instance.latency.ewma", instanceStats, s -> s.getEwmaNanos() / 1_000_000)
+                        .tags("service", serviceId, "instance", address)
+                        .baseUnit("milliseconds")
+                        .register(meterRegistry),
+                Gauge.builder("trelabank.loadbalancer.instance.outstanding", instanceStats, InstanceStats::getOutstanding)
+                        .tags("service", serviceId, "instance", address)
+                        .register(meterRegistry),
+                Gauge.builder("trelabank.loadbalancer.instance.score", instanceStats, s -> s.getScore() / 1_000_000)
+                        .tags("service", serviceId, "instance", address)
+                        .register(meterRegistry));
+        return new Tracked(instanceStats, serviceId, address, meters);
+    }
+
+    private static String key(ServiceInstance instance) {
+        return instance.getServiceId() + "/" + address(instance);
+    }
+
+    private static String address(ServiceInstance instance) {
+        return instance.getHost() + ":" + instance.getPort();
+    }
+
+    private record Tracked(InstanceStats stats, String serviceId, String address, List<Meter> meters) {
+    }
+}
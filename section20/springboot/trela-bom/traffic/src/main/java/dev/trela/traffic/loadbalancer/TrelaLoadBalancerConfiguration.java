@@ -0,0 +1,34 @@
+package dev.trela.traffic.loadbalancer;
+
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.loadbalancer.core.ReactorLoadBalancer;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.support.LoadBalancerClientFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.env.Environment;
+
+// Per-client LoadBalancer configuration. Not a @Configuration on purpose - register it with
+// @LoadBalancerClients(defaultConfiguration = TrelaLoadBalancerConfiguration.class)
+// so it lands in each client's child context instead of the application context.
+// trelabank.loadbalancer.strategy (peak-ewma or consistent-hash) picks the algorithm,
+// trelabank.loadbalancer.clients.<serviceId>.strategy overrides it for one service.
+public class TrelaLoadBalancerConfiguration {
+
+    @Bean
+    public ReactorLoadBalancer<ServiceInstance> trelaLoadBalancer(Environment environment,
+                                                                  LoadBalancerClientFactory loadBalancerClientFactory,
+                                                                  InstanceStatsRegistry instanceStatsRegistry) {
+        String serviceId = environment.getProperty(LoadBalancerClientFactory.PROPERTY_NAME);
+        String strategy = environment.getProperty("trelabank.loadbalancer.clients." + serviceId + ".strategy",
+                environment.getProperty("trelabank.loadbalancer.strategy", "peak-ewma"));
+        if ("consistent-hash".equals(strategy)) {
+            double loadFactor = environment.getProperty("trelabank.loadbalancer.consistent-hash.load-factor", Double.class, 1.25);
+            return new ConsistentHashLoadBalancer(
+                    loadBalancerClientFactory.getLazyProvider(serviceId, ServiceInstanceListSupplier.class),
+                    serviceId, instanceStatsRegistry, loadFactor);
+        }
+        return new PeakEwmaLoadBalancer(
+                loadBalancerClientFactory.getLazyProvider(serviceId, ServiceInstanceListSupplier.class),
+                serviceId, instanceStatsRegistry);
+    }
+}
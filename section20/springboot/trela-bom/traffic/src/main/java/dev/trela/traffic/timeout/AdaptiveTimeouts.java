@@ -0,0 +1,93 @@
+package dev.trela.traffic.timeout;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+// Per endpoint call timeout = multiplier x recent p99, clamped to [min, max]. Latencies go into
+// an HdrHistogram Recorder (lock-free on the hot path); at most once per window the recorded
+// interval is folded into the current sample, and once that holds minSamples calls it becomes
+// the new p99. Until an endpoint has that much history its timeout is max.
+public class AdaptiveTimeouts {
+
+    private static final long MAX_TRACKED_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private final MeterRegistry meterRegistry;
+    private final Settings settings;
+    private final Map<String, Endpoint> endpoints = new ConcurrentHashMap<>();
+
+    public AdaptiveTimeouts(MeterRegistry meterRegistry, Settings settings) {
+        this.meterRegistry = meterRegistry;
+        this.settings = settings;
+    }
+
+    public Duration timeoutFor(String endpoint) {
+        return Duration.ofNanos(endpoint(endpoint).timeoutNanos(System.nanoTime()));
+    }
+
+    // only calls that completed - a timed out call tells us nothing about the real latency
+    public void record(String endpoint, long elapsedNanos) {
+        endpoint(endpoint).recorder.recordValue(Math.min(Math.max(elapsedNanos, 1), MAX_TRACKED_NANOS));
+    }
+
+    public void recordTimeout(String endpoint) {
+        meterRegistry.counter("trelabank.timeout.adaptive.expired", "endpoint", endpoint).increment();
+    }
+
+    private Endpoint endpoint(String endpoint) {
+        return endpoints.computeIfAbsent(endpoint, this::register);
+    }
+
+    private Endpoint register(String name) {
+        Endpoint endpoint = new Endpoint(System.nanoTime());
+        Gauge.builder("trelabank.timeout.adaptive", endpoint, e -> e.timeoutNanos / 1_000_000.0)
+                .tag("endpoint", name)
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+        return endpoint;
+    }
+
+    public record Settings(double multiplier, Duration min, Duration max, Duration window, long minSamples) {
+    }
+
+    private final class Endpoint {
+
+        private final Recorder recorder = new Recorder(MAX_TRACKED_NANOS, 2);
+        private final Histogram sample = new Histogram(MAX_TRACKED_NANOS, 2);
+        private Histogram interval;
+        private volatile long lastFold;
+        private volatile long timeoutNanos = settings.max().toNanos();
+
+        private Endpoint(long now) {
+            this.lastFold = now;
+        }
+
+        private long timeoutNanos(long now) {
+            if (now - lastFold >= settings.window().toNanos()) {
+                fold(now);
+            }
+            return timeoutNanos;
+        }
+
+        private synchronized void fold(long now) {
+            if (now - lastFold < settings.window().toNanos()) {
+                return;
+            }
+            lastFold = now;
+            interval = recorder.getIntervalHistogram(interval);
+            sample.add(interval);
+            if (sample.getTotalCount() < settings.minSamples()) {
+                return;
+            }
+            long target = (long) (sample.getValueAtPercentile(99.0) * settings.multiplier());
+            timeoutNanos = Math.min(settings.max().toNanos(), Math.max(settings.min().toNanos(), target));
+            sample.reset();
+        }
+    }
+}